@@ -0,0 +1,126 @@
+package stringmatching.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ns/op of every registered Solution engine over text length, pattern length and alphabet.
+ *
+ * The engines live in the default package, which named packages cannot import, so
+ * the engine is loaded by name (running its registration block) and Solve is called
+ * through a MethodHandle bound to the instance. The handle adds a few ns per call,
+ * the same for every engine.
+ *
+ * The pattern is cut from the middle of the text, so every query has at least one
+ * match. Index engines (SuffixArraySearch, FMIndexSearch, SuffixAutomatonSearch)
+ * build their index during warm-up and are then measured per query, which is how
+ * TextIndexCache serves them. Add -prof gc for allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EngineBenchmark {
+
+    @Param({"Naive", "KMP", "RabinKarp", "BoyerMoore", "GoCrazy",
+            "SuffixArraySearch", "FMIndexSearch", "SuffixAutomatonSearch"})
+    public String engine;
+
+    @Param({"1024", "65536", "1048576"})
+    public int n;
+
+    @Param({"4", "16", "64"})
+    public int m;
+
+    @Param({"binary", "dna", "english", "cjk"})
+    public String alphabet;
+
+    private String text;
+    private String pattern;
+    private MethodHandle solve;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Random random = new Random(42);
+        String symbols = symbols(alphabet);
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append(symbols.charAt(random.nextInt(symbols.length())));
+        }
+        text = sb.toString();
+        int start = (n - m) / 2;
+        pattern = text.substring(start, start + m);
+
+        Class<?> engineClass = Class.forName(engine);  // Runs the engine's registration block
+        Constructor<?> constructor = engineClass.getDeclaredConstructor();
+        constructor.setAccessible(true);  // Engine classes are package-private
+        Object instance = constructor.newInstance();
+        solve = MethodHandles.publicLookup()
+                .findVirtual(Class.forName("Solution"), "Solve",
+                        MethodType.methodType(String.class, String.class, String.class))
+                .bindTo(instance);
+
+        // Sanity check: every engine must agree with a plain indexOf scan
+        String expected = reference(text, pattern);
+        String actual = (String) solve.invokeExact(text, pattern);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(engine + " returned a wrong result for n=" + n + ", m=" + m + ", " + alphabet);
+        }
+    }
+
+    @Benchmark
+    public void solve(Blackhole bh) throws Throwable {
+        bh.consume((String) solve.invokeExact(text, pattern));
+    }
+
+    private static String symbols(String alphabet) {
+        switch (alphabet) {
+            case "binary":
+                return "01";
+            case "dna":
+                return "ACGT";
+            case "english":
+                return "abcdefghijklmnopqrstuvwxyz ";
+            case "cjk": {
+                StringBuilder sb = new StringBuilder();
+                for (char c = '一'; c < '一' + 512; c++) {
+                    sb.append(c);
+                }
+                return sb.toString();
+            }
+            default:
+                throw new IllegalArgumentException("Unknown alphabet: " + alphabet);
+        }
+    }
+
+    private static String reference(String text, String pattern) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(i);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Online engine selection with an epsilon-greedy bandit per query bucket.
+ *
+ * Queries are bucketed by coarse features: log2 of the text length, log2 of the
+ * pattern length, the pattern's alphabet class and whether it is periodic. Inside a
+ * bucket each engine ("arm") keeps its total observed latency and call count in
+ * LongAdders, so recording an observation never takes a lock. choose() mostly
+ * exploits the arm with the lowest mean latency and explores with probability
+ * epsilon (or whenever an arm has too few samples). Arm statistics are halved once
+ * they exceed a window, so the selector follows traffic that shifts over time.
+ */
+public class AdaptiveSelector {
+    public static final double DEFAULT_EPSILON = 0.05;
+
+    static final int MIN_SAMPLES = 3;
+    static final long WINDOW = 4096;
+
+    private static final int N_CLASSES = 32;
+    private static final int M_CLASSES = 16;
+    private static final int ALPHABET_CLASSES = 4;
+
+    private final String[] arms;
+    private final double epsilon;
+    private final AtomicReferenceArray<Bucket> buckets =
+            new AtomicReferenceArray<>(N_CLASSES * M_CLASSES * ALPHABET_CLASSES * 2);
+
+    /**
+     * @param arms Names of the engines to choose between
+     * @param epsilon Exploration probability
+     */
+    public AdaptiveSelector(String[] arms, double epsilon) {
+        this.arms = arms.clone();
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Bucket index for a query.
+     */
+    public int bucket(int n, int m, PatternProfile profile) {
+        int nClass = Math.min(N_CLASSES - 1, 32 - Integer.numberOfLeadingZeros(n));
+        int mClass = Math.min(M_CLASSES - 1, 32 - Integer.numberOfLeadingZeros(m));
+        int sigma = profile.alphabetSize();
+        int alphabetClass = sigma <= 2 ? 0 : sigma <= 4 ? 1 : sigma <= 16 ? 2 : 3;
+        int periodic = profile.repeatScore() > 0.5 ? 1 : 0;
+        return ((nClass * M_CLASSES + mClass) * ALPHABET_CLASSES + alphabetClass) * 2 + periodic;
+    }
+
+    /**
+     * Pick an arm for the bucket.
+     * @return Index into the arm names
+     */
+    public int choose(int bucket) {
+        Bucket b = bucketFor(bucket);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int best = -1;
+        double bestMean = Double.POSITIVE_INFINITY;
+        for (int arm = 0; arm < arms.length; arm++) {
+            long count = b.counts[arm].sum();
+            if (count < MIN_SAMPLES) {
+                return arm; // Every arm needs a few samples before means are comparable
+            }
+            double mean = (double) b.totals[arm].sum() / count;
+            if (mean < bestMean) {
+                bestMean = mean;
+                best = arm;
+            }
+        }
+        if (random.nextDouble() < epsilon) {
+            return random.nextInt(arms.length);
+        }
+        return best;
+    }
+
+    /**
+     * Record the observed latency of one call.
+     */
+    public void record(int bucket, int arm, long nanos) {
+        Bucket b = bucketFor(bucket);
+        b.totals[arm].add(nanos);
+        b.counts[arm].increment();
+        // Occasionally age the statistics so old traffic does not dominate forever.
+        // Races with concurrent adds only lose or keep a few samples.
+        if ((ThreadLocalRandom.current().nextInt() & 63) == 0 && b.counts[arm].sum() > WINDOW) {
+            long total = b.totals[arm].sumThenReset();
+            long count = b.counts[arm].sumThenReset();
+            b.totals[arm].add(total / 2);
+            b.counts[arm].add(count / 2);
+        }
+    }
+
+    public String armName(int arm) {
+        return arms[arm];
+    }
+
+    /**
+     * @return Mean latency in ns of an arm in a bucket, or NaN if it has no samples
+     */
+    public double meanNanos(int bucket, int arm) {
+        Bucket b = buckets.get(bucket);
+        if (b == null) {
+            return Double.NaN;
+        }
+        long count = b.counts[arm].sum();
+        return count == 0 ? Double.NaN : (double) b.totals[arm].sum() / count;
+    }
+
+    private Bucket bucketFor(int index) {
+        Bucket b = buckets.get(index);
+        if (b == null) {
+            Bucket created = new Bucket(arms.length);
+            b = buckets.compareAndSet(index, null, created) ? created : buckets.get(index);
+        }
+        return b;
+    }
+
+    private static final class Bucket {
+        final LongAdder[] totals;
+        final LongAdder[] counts;
+
+        Bucket(int arms) {
+            totals = new LongAdder[arms];
+            counts = new LongAdder[arms];
+            for (int i = 0; i < arms; i++) {
+                totals[i] = new LongAdder();
+                counts[i] = new LongAdder();
+            }
+        }
+    }
+}
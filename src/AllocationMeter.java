@@ -0,0 +1,107 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Heap bytes allocated per call, from the JVM's per-thread allocation counter
+ * (com.sun.management.ThreadMXBean.getThreadAllocatedBytes).
+ *
+ * The counter is exact up to TLAB bookkeeping and does not see what other threads
+ * allocate. bytesPerCall() takes the median of a few calls so that one-off work
+ * such as a lazily built table or a cache fill does not dominate, and subtracts
+ * what reading the counter itself allocates. Measure after the operation is warm:
+ * the JIT's escape analysis removes allocations the interpreter still makes.
+ */
+public final class AllocationMeter {
+    /** Returned when the JVM cannot count allocations per thread */
+    public static final long UNSUPPORTED = -1L;
+
+    static final int CALLS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+    private static final long OVERHEAD = THREADS == null ? 0 : calibrate();
+
+    private AllocationMeter() {
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        try {
+            if (!threads.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if (!threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+        return threads;
+    }
+
+    /**
+     * Bytes a pair of counter reads allocates by itself (normally 0).
+     */
+    private static long calibrate() {
+        long[] samples = new long[CALLS];
+        for (int i = 0; i < samples.length; i++) {
+            long before = allocatedBytes();
+            samples[i] = allocatedBytes() - before;
+        }
+        Arrays.sort(samples);
+        return samples[0];
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * @return Bytes allocated so far by the current thread
+     */
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Median heap bytes allocated by one call of the operation.
+     * @param action The operation to measure
+     * @return Bytes per call, or UNSUPPORTED if the JVM cannot count them
+     */
+    public static long bytesPerCall(Supplier<?> action) {
+        if (THREADS == null) {
+            return UNSUPPORTED;
+        }
+        long[] samples = new long[CALLS];
+        for (int i = 0; i < samples.length; i++) {
+            long before = allocatedBytes();
+            action.get();
+            samples[i] = Math.max(0, allocatedBytes() - before - OVERHEAD);
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    /**
+     * Human-readable byte count ("0 B", "312 B", "4.2 KB", "1.3 MB"), or "n/a" for UNSUPPORTED.
+     */
+    public static String format(long bytes) {
+        if (bytes < 0) {
+            return "n/a";
+        }
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        }
+        return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
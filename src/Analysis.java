@@ -1,5 +1,6 @@
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 class Naive extends Solution {
     static {
@@ -13,22 +14,44 @@ class Naive extends Solution {
     @Override
     public String Solve(String text, String pattern) {
         List<Integer> indices = new ArrayList<>();
+        search(text, pattern, indices::add);
+        return indicesToString(indices);
+    }
+
+    @Override
+    public void solveInto(String text, String pattern, MatchCollector out) {
+        search(text, pattern, out);
+    }
+
+    /**
+     * Brute-force scan reporting each match position, in ascending order, to out.
+     */
+    static void search(String text, String pattern, IntConsumer out) {
         int n = text.length();
         int m = pattern.length();
 
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(m);
+        OpCounters ops = OpCounters.ENABLED ? OpCounters.current() : null;
         for (int i = 0; i <= n - m; i++) {
+            if (SearchBudget.shouldStop(budget, i, checkMask)) {
+                break;
+            }
             int j;
             for (j = 0; j < m; j++) {
                 if (text.charAt(i + j) != pattern.charAt(j)) {
                     break;
                 }
             }
+            if (OpCounters.ENABLED) {
+                ops.comparisons += j < m ? j + 1 : m;
+                ops.shifts++;
+                ops.shiftDistance++;
+            }
             if (j == m) {
-                indices.add(i);
+                out.accept(i);
             }
         }
-
-        return indicesToString(indices);
     }
 }
 
@@ -44,68 +67,89 @@ class KMP extends Solution {
     @Override
     public String Solve(String text, String pattern) {
         List<Integer> indices = new ArrayList<>();
+        search(text, pattern, indices::add);
+        return indicesToString(indices);
+    }
+
+    @Override
+    public void solveInto(String text, String pattern, MatchCollector out) {
+        search(text, pattern, out);
+    }
+
+    /**
+     * KMP scan reporting each match position, in ascending order, to out.
+     */
+    static void search(String text, String pattern, IntConsumer out) {
         int n = text.length();
         int m = pattern.length();
 
         // Handle empty pattern - matches at every position
         if (m == 0) {
-            for (int i = 0; i <= n; i++) {
-                indices.add(i);
-            }
-            return indicesToString(indices);
+            reportAllPositions(n, out);
+            return;
         }
 
-        // Compute LPS (Longest Proper Prefix which is also Suffix) array
-        int[] lps = computeLPS(pattern);
+        // LPS (Longest Proper Prefix which is also Suffix) array, shared through the table cache
+        PatternProfile profile = PatternProfile.of(pattern);
+        int[] lps = profile.lps();
+        // After a match the next one starts at least one period later, with m - period characters already matched
+        int afterMatch = m - profile.period();
 
         int i = 0; // index for text
         int j = 0; // index for pattern
 
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(1);
+        OpCounters ops = OpCounters.ENABLED ? OpCounters.current() : null;
         while (i < n) {
+            if (SearchBudget.shouldStop(budget, i, checkMask)) {
+                break;
+            }
+            if (OpCounters.ENABLED) {
+                ops.comparisons++;
+            }
             if (text.charAt(i) == pattern.charAt(j)) {
                 i++;
                 j++;
             }
 
             if (j == m) {
-                indices.add(i - j);
-                j = lps[j - 1];
+                out.accept(i - j);
+                j = afterMatch;
+                if (OpCounters.ENABLED) {
+                    ops.lpsFallbacks++;
+                }
             } else if (i < n && text.charAt(i) != pattern.charAt(j)) {
+                if (OpCounters.ENABLED) {
+                    ops.comparisons++;
+                }
                 if (j != 0) {
                     j = lps[j - 1];
+                    if (OpCounters.ENABLED) {
+                        ops.lpsFallbacks++;
+                    }
                 } else {
                     i++;
                 }
+            } else if (OpCounters.ENABLED && i < n) {
+                ops.comparisons++;
             }
         }
-
-        return indicesToString(indices);
     }
 
-    private int[] computeLPS(String pattern) {
-        int m = pattern.length();
-        int[] lps = new int[m];
-        int len = 0;
-        int i = 1;
-
-        lps[0] = 0;
-
-        while (i < m) {
-            if (pattern.charAt(i) == pattern.charAt(len)) {
-                len++;
-                lps[i] = len;
-                i++;
-            } else {
-                if (len != 0) {
-                    len = lps[len - 1];
-                } else {
-                    lps[i] = 0;
-                    i++;
-                }
-            }
+    @Override
+    public void prepare(String pattern) {
+        if (!pattern.isEmpty()) {
+            cachedLPS(pattern);
         }
+    }
 
-        return lps;
+    /**
+     * LPS array for the pattern, taken from its shared PatternProfile.
+     * The returned array is shared and must not be modified.
+     */
+    static int[] cachedLPS(String pattern) {
+        return PatternProfile.of(pattern).lps();
     }
 }
 
@@ -123,19 +167,30 @@ class RabinKarp extends Solution {
     @Override
     public String Solve(String text, String pattern) {
         List<Integer> indices = new ArrayList<>();
+        search(text, pattern, indices::add);
+        return indicesToString(indices);
+    }
+
+    @Override
+    public void solveInto(String text, String pattern, MatchCollector out) {
+        search(text, pattern, out);
+    }
+
+    /**
+     * Rolling-hash scan reporting each match position, in ascending order, to out.
+     */
+    static void search(String text, String pattern, IntConsumer out) {
         int n = text.length();
         int m = pattern.length();
 
         // Handle empty pattern - matches at every position
         if (m == 0) {
-            for (int i = 0; i <= n; i++) {
-                indices.add(i);
-            }
-            return indicesToString(indices);
+            reportAllPositions(n, out);
+            return;
         }
 
         if (m > n) {
-            return "";
+            return;
         }
 
         int d = 256; // Number of characters in the input alphabet
@@ -155,21 +210,39 @@ class RabinKarp extends Solution {
         }
 
         // Slide the pattern over text one by one
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(m);
+        OpCounters ops = OpCounters.ENABLED ? OpCounters.current() : null;
         for (int i = 0; i <= n - m; i++) {
+            if (SearchBudget.shouldStop(budget, i, checkMask)) {
+                break;
+            }
             // Check if hash values match
             if (patternHash == textHash) {
                 // Check characters one by one
                 boolean match = true;
-                for (int j = 0; j < m; j++) {
+                int j;
+                for (j = 0; j < m; j++) {
                     if (text.charAt(i + j) != pattern.charAt(j)) {
                         match = false;
                         break;
                     }
                 }
+                if (OpCounters.ENABLED) {
+                    ops.comparisons += match ? m : j + 1;
+                    ops.hashHits++;
+                    if (!match) {
+                        ops.spuriousHits++;
+                    }
+                }
                 if (match) {
-                    indices.add(i);
+                    out.accept(i);
                 }
             }
+            if (OpCounters.ENABLED) {
+                ops.shifts++;
+                ops.shiftDistance++;
+            }
 
             // Calculate hash value for next window
             if (i < n - m) {
@@ -181,8 +254,6 @@ class RabinKarp extends Solution {
                 }
             }
         }
-
-        return indicesToString(indices);
     }
 }
 
@@ -205,6 +276,25 @@ class BoyerMoore extends Solution {
         return formatIndices(indices);
     }
 
+    @Override
+    public void solveInto(String text, String pattern, MatchCollector out) {
+        boyerMooreSearch(text, pattern, out);
+    }
+
+    @Override
+    public void prepare(String pattern) {
+        if (!pattern.isEmpty()) {
+            cachedTables(pattern);
+        }
+    }
+
+    /**
+     * Shift tables for the pattern, compiled once and shared via PatternTableCache.
+     */
+    static Tables cachedTables(String pattern) {
+        return PatternTableCache.shared().get("BoyerMoore", pattern, Tables::new, Tables::sizeInBytes);
+    }
+
     /**
      * Helper method to convert list of indices to comma-separated string.
      * @param indices List of indices
@@ -232,45 +322,62 @@ class BoyerMoore extends Solution {
      */
     public static List<Integer> boyerMooreSearch(String text, String pattern) {
         List<Integer> matches = new ArrayList<>();
+        boyerMooreSearch(text, pattern, matches::add);
+        return matches;
+    }
+
+    /**
+     * Boyer-Moore search reporting each match position, in ascending order, to out.
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @param out Receives the starting indices
+     */
+    public static void boyerMooreSearch(String text, String pattern, IntConsumer out) {
         int n = text.length();
         int m = pattern.length();
 
         // Handle empty pattern: match at every position
         if (m == 0) {
-            for (int i = 0; i <= n; i++) {
-                matches.add(i);
-            }
-            return matches;
+            reportAllPositions(n, out);
+            return;
         }
 
         // Handle pattern longer than text
         if (m > n) {
-            return matches;
+            return;
         }
 
-        // Preprocessing
+        // Preprocessing (compiled once per pattern and shared via PatternTableCache)
+        Tables tables = cachedTables(pattern);
         // Bad Character Heuristic
         // Use int array for ASCII/Latin1 and Map for other Unicode characters
-        int[] badCharTable = new int[256];
-        java.util.Map<Integer, Integer> badCharMap = new java.util.HashMap<>();
-        preprocessBadCharacter(pattern, badCharTable, badCharMap);
+        int[] badCharTable = tables.badCharTable;
+        java.util.Map<Integer, Integer> badCharMap = tables.badCharMap;
 
         // Good Suffix Heuristic
-        int[] goodSuffixTable = preprocessGoodSuffix(pattern);
+        int[] goodSuffixTable = tables.goodSuffixTable;
 
         // Main Search Loop
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(m);
+        long attempts = 0;
         int i = 0; // Alignment of pattern relative to text
+        OpCounters ops = OpCounters.ENABLED ? OpCounters.current() : null;
         while (i <= n - m) {
+            if (SearchBudget.shouldStop(budget, attempts++, checkMask)) {
+                break;
+            }
             int j = m - 1;
 
             // Scan right-to-left
             while (j >= 0 && pattern.charAt(j) == text.charAt(i + j)) {
                 j--;
             }
+            int previous = i;
 
             if (j < 0) {
                 // Match found
-                matches.add(i);
+                out.accept(i);
                 // Shift so next occurrence aligns with longest proper suffix that is a prefix
                 // goodSuffixTable[0] holds the shift amount for a full match
                 i += goodSuffixTable[0];
@@ -295,11 +402,266 @@ class BoyerMoore extends Solution {
                 // Take the maximum of the two shifts
                 i += Math.max(badCharShift, goodSuffixShift);
             }
+            if (OpCounters.ENABLED) {
+                ops.comparisons += j < 0 ? m : m - j;
+                ops.shifts++;
+                ops.shiftDistance += i - previous;
+            }
         }
+    }
 
+    // Alignments per monitoring window of adaptiveSearch
+    static final int MONITOR_WINDOW = 64;
+
+    /**
+     * Self-monitoring Boyer-Moore that falls back to KMP when it degrades.
+     *
+     * Every MONITOR_WINDOW alignments it checks the average shift and the number of
+     * character comparisons per text character advanced. When shifts have collapsed
+     * to at most 2 and BM is doing more than 2 comparisons per character (KMP's
+     * worst case), the rest of the text is handed to KMP. Every alignment before the
+     * current one has been ruled out by safe BM shifts, so KMP starts at that alignment
+     * with an empty state: no match is lost or reported twice, and fewer than m
+     * characters are read again. Texts where BM skips well never leave the BM loop.
+     *
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @return List of starting indices
+     */
+    public static List<Integer> adaptiveSearch(String text, String pattern) {
+        List<Integer> matches = new ArrayList<>();
+        adaptiveSearch(text, pattern, matches::add);
         return matches;
     }
 
+    /**
+     * adaptiveSearch reporting each match position, in ascending order, to out.
+     */
+    public static void adaptiveSearch(String text, String pattern, IntConsumer out) {
+        int n = text.length();
+        int m = pattern.length();
+        if (m == 0 || m > n) {
+            boyerMooreSearch(text, pattern, out);
+            return;
+        }
+
+        Tables tables = cachedTables(pattern);
+        int[] badCharTable = tables.badCharTable;
+        java.util.Map<Integer, Integer> badCharMap = tables.badCharMap;
+        int[] goodSuffixTable = tables.goodSuffixTable;
+
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(m);
+        long attempts = 0;
+        int i = 0;
+        int windowStart = 0;
+        int alignments = 0;
+        long comparisons = 0;
+        OpCounters ops = OpCounters.ENABLED ? OpCounters.current() : null;
+        while (i <= n - m) {
+            if (SearchBudget.shouldStop(budget, attempts++, checkMask)) {
+                break;
+            }
+            int j = m - 1;
+            while (j >= 0 && pattern.charAt(j) == text.charAt(i + j)) {
+                j--;
+            }
+            int compared = j < 0 ? m : m - j; // Matched characters plus the mismatch (or m for a full match)
+            comparisons += compared;
+            int previous = i;
+
+            if (j < 0) {
+                out.accept(i);
+                i += goodSuffixTable[0];
+            } else {
+                char badChar = text.charAt(i + j);
+                int lastOccurrence = badChar < 256
+                        ? badCharTable[badChar]
+                        : badCharMap.getOrDefault((int) badChar, -1);
+                i += Math.max(j - lastOccurrence, goodSuffixTable[j + 1]);
+            }
+            if (OpCounters.ENABLED) {
+                ops.comparisons += compared;
+                ops.shifts++;
+                ops.shiftDistance += i - previous;
+            }
+
+            if (++alignments == MONITOR_WINDOW) {
+                int advanced = i - windowStart;
+                if (advanced <= 2 * MONITOR_WINDOW && comparisons > 2L * advanced) {
+                    kmpFrom(text, pattern, i, out);
+                    return;
+                }
+                windowStart = i;
+                alignments = 0;
+                comparisons = 0;
+            }
+        }
+    }
+
+    /**
+     * adaptiveSearch that first compares the pattern's rarest character (see
+     * PatternProfile.rarestCharIndex) at every alignment. Pays off when the pattern
+     * ends in a character that is common in the text, so the usual right-to-left scan
+     * keeps matching it, while the rarest character is not: most alignments then fail
+     * on one compare. A failed probe says nothing about the suffix, so the shift is
+     * Horspool's (see Tables.lastCharShift). Falls back to KMP like adaptiveSearch.
+     */
+    public static void rarestFirstSearch(String text, String pattern, IntConsumer out) {
+        int n = text.length();
+        int m = pattern.length();
+        Tables tables = m == 0 || m > n ? null : cachedTables(pattern);
+        if (tables == null || tables.probeIndex < 0) {
+            adaptiveSearch(text, pattern, out);
+            return;
+        }
+        int probe = tables.probeIndex;
+        char probeChar = tables.probeChar;
+        int[] badCharTable = tables.badCharTable;
+        java.util.Map<Integer, Integer> badCharMap = tables.badCharMap;
+        int[] goodSuffixTable = tables.goodSuffixTable;
+
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(m);
+        long attempts = 0;
+        int i = 0;
+        int windowStart = 0;
+        int alignments = 0;
+        long comparisons = 0;
+        OpCounters ops = OpCounters.ENABLED ? OpCounters.current() : null;
+        while (i <= n - m) {
+            if (SearchBudget.shouldStop(budget, attempts++, checkMask)) {
+                break;
+            }
+            int previous = i;
+            int compared;
+            if (text.charAt(i + probe) != probeChar) {
+                compared = 1;
+                i += tables.lastCharShift(text.charAt(i + m - 1));
+            } else {
+                int j = m - 1;
+                while (j >= 0 && pattern.charAt(j) == text.charAt(i + j)) {
+                    j--;
+                }
+                compared = j < 0 ? m + 1 : m - j + 1; // Including the probe
+                if (j < 0) {
+                    out.accept(i);
+                    i += goodSuffixTable[0];
+                } else {
+                    char badChar = text.charAt(i + j);
+                    int lastOccurrence = badChar < 256
+                            ? badCharTable[badChar]
+                            : badCharMap.getOrDefault((int) badChar, -1);
+                    i += Math.max(j - lastOccurrence, goodSuffixTable[j + 1]);
+                }
+            }
+            comparisons += compared;
+            if (OpCounters.ENABLED) {
+                ops.comparisons += compared;
+                ops.shifts++;
+                ops.shiftDistance += i - previous;
+            }
+
+            if (++alignments == MONITOR_WINDOW) {
+                int advanced = i - windowStart;
+                if (advanced <= 2 * MONITOR_WINDOW && comparisons > 2L * advanced) {
+                    kmpFrom(text, pattern, i, out);
+                    return;
+                }
+                windowStart = i;
+                alignments = 0;
+                comparisons = 0;
+            }
+        }
+    }
+
+    /**
+     * KMP over text[from..], appending matches. Used for the tail of adaptiveSearch.
+     */
+    private static void kmpFrom(String text, String pattern, int from, IntConsumer out) {
+        int n = text.length();
+        int m = pattern.length();
+        PatternProfile profile = PatternProfile.of(pattern);
+        int[] lps = profile.lps();
+        int afterMatch = m - profile.period();
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(1);
+        OpCounters ops = OpCounters.ENABLED ? OpCounters.current() : null;
+        int j = 0;
+        for (int i = from; i < n; i++) {
+            if (SearchBudget.shouldStop(budget, i, checkMask)) {
+                break;
+            }
+            char c = text.charAt(i);
+            while (j > 0 && pattern.charAt(j) != c) {
+                j = lps[j - 1];
+                if (OpCounters.ENABLED) {
+                    ops.comparisons++;
+                    ops.lpsFallbacks++;
+                }
+            }
+            if (OpCounters.ENABLED) {
+                ops.comparisons += j > 0 ? 2 : 1; // The compare that ended the loop, and this one
+            }
+            if (pattern.charAt(j) == c) {
+                j++;
+            }
+            if (j == m) {
+                out.accept(i - m + 1);
+                j = afterMatch;
+            }
+        }
+    }
+
+    /**
+     * Preprocessed shift tables for one pattern. Shared between calls and threads,
+     * so they are never modified after construction.
+     *
+     * probeIndex is where rarestFirstSearch probes: the pattern's rarest character,
+     * if it is rarer in the pattern than the last character (otherwise the usual scan
+     * already starts on the rarest one).
+     */
+    static final class Tables {
+        final int[] badCharTable = new int[256];
+        final java.util.Map<Integer, Integer> badCharMap = new java.util.HashMap<>();
+        final int[] goodSuffixTable;
+        final int probeIndex;    // Index of the rarest character, or -1 to scan from the right directly
+        final char probeChar;
+        final int length;
+        final char lastChar;
+        final int lastCharRepeatShift; // Horspool shift when the text shows lastChar
+
+        Tables(String pattern) {
+            int m = pattern.length();
+            length = m;
+            preprocessBadCharacter(pattern, badCharTable, badCharMap);
+            goodSuffixTable = preprocessGoodSuffix(pattern);
+            PatternProfile profile = PatternProfile.of(pattern);
+            lastChar = m == 0 ? 0 : pattern.charAt(m - 1);
+            boolean rarer = m > 1 && profile.count(profile.rarestChar()) < profile.count(lastChar);
+            probeIndex = rarer ? profile.rarestCharIndex() : -1;
+            probeChar = profile.rarestChar();
+            lastCharRepeatShift = m - 1 - pattern.lastIndexOf(lastChar, m - 2);
+        }
+
+        /**
+         * Horspool shift for an alignment ruled out while c sits under the pattern's
+         * last position: up to the rightmost c in pattern[0..m-2], or past c entirely
+         */
+        int lastCharShift(char c) {
+            if (c == lastChar) {
+                return lastCharRepeatShift;
+            }
+            int lastOccurrence = c < 256 ? badCharTable[c] : badCharMap.getOrDefault((int) c, -1);
+            return length - 1 - lastOccurrence;
+        }
+
+        long sizeInBytes() {
+            // Arrays plus a rough 64 bytes per boxed HashMap entry
+            return 16 + 4L * badCharTable.length + 16 + 4L * goodSuffixTable.length + 48 + 64L * badCharMap.size();
+        }
+    }
+
     /**
      * Preprocesses the pattern for the Bad Character rule.
      */
@@ -367,9 +729,26 @@ class BoyerMoore extends Solution {
  * to select the optimal string matching strategy.
  */
 class GoCrazy extends Solution {
+    // Machine-calibrated cost model (see CostModel); null means use the fixed rules below
+    private static final CostModel MODEL = CostModel.loadDefault();
+
+    // Online bandit over the scanning engines; null unless started with -Dgocrazy.adaptive=true
+    private static final AdaptiveSelector adaptive =
+            Boolean.getBoolean("gocrazy.adaptive") ? new AdaptiveSelector(CostModel.ENGINES, AdaptiveSelector.DEFAULT_EPSILON) : null;
+
+    // Answer hot large texts from a cached suffix array; off unless -Dgocrazy.autoindex=true,
+    // so timing runs measure GoCrazy's own engine choice rather than the index
+    private static final boolean AUTO_INDEX = Boolean.getBoolean("gocrazy.autoindex");
+
+    // Shortest text worth sampling just to choose how to scan it: the sample is a small part of the scan
+    private static final int PROFILE_MIN_TEXT = 8 * TextProfile.DEFAULT_BUDGET;
+
+    // Text frequency of the pattern's last character from which probing the rarest character first pays off
+    private static final double PROBE_MIN_LAST_FREQUENCY = 0.6;
+
     static {
         SUBCLASSES.add(GoCrazy.class);
-        System.out.println("GoCrazy registered");
+        System.out.println("GoCrazy registered" + (MODEL != null ? " (cost model loaded)" : ""));
     }
 
     public GoCrazy() {
@@ -381,38 +760,118 @@ class GoCrazy extends Solution {
         return indicesToString(indices);
     }
 
+    @Override
+    public void solveInto(String text, String pattern, MatchCollector out) {
+        goCrazySearch(text, pattern, out);
+    }
+
+    @Override
+    protected String solveTraced(String text, String pattern, SearchEvent event) {
+        List<Integer> indices = new ArrayList<>();
+        event.engine = goCrazySearch(text, pattern, indices::add);
+        return indicesToString(indices);
+    }
+
+    @Override
+    public void prepare(String pattern) {
+        // GoCrazy may dispatch to either table-driven engine
+        if (pattern.length() > 1) {
+            PatternProfile.of(pattern);
+            BoyerMoore.cachedTables(pattern);
+        }
+    }
+
     /**
      * Deterministic hybrid search that selects the best algorithm based on input features.
      * 
      * Decision Logic:
+     * 0. Hot large text -> cached SuffixArray (see TextIndexCache; opt-in, never under a budget)
+     *    Adaptive mode -> engine learned per query bucket (see AdaptiveSelector)
+     *    Calibrated cost model present -> engine with the lowest predicted cost;
+     *    the fixed rules below are only the fallback for an uncalibrated machine
      * 1. Empty/Short Pattern -> Naive (Lowest overhead)
      * 2. Binary Data -> Rabin-Karp (Robust hashing)
-     * 3. High Repetition/Overlap -> Rabin-Karp (Proven winner in stress tests)
+     * 3. High Repetition/Overlap, or low-entropy text leaving a short pattern
+     *    nothing to skip on (TextProfile.skipsCollapse) -> Rabin-Karp
      * 4. Low Match Density & Long Pattern -> Boyer-Moore (Best skip performance)
      * 5. Periodic/Torture Cases -> KMP (Linear guarantee)
      * 6. Default -> Boyer-Moore (General purpose winner)
+     *
+     * Boyer-Moore always runs as BoyerMoore.adaptiveSearch, which hands the rest of
+     * the text to KMP if the text turns repetitive partway through, or as
+     * BoyerMoore.rarestFirstSearch when the sampled text shows the pattern's last
+     * character often and its rarest character seldom (see boyerMoore()).
      */
     public static List<Integer> goCrazySearch(String text, String pattern) {
+        List<Integer> indices = new ArrayList<>();
+        goCrazySearch(text, pattern, indices::add);
+        return indices;
+    }
+
+    /**
+     * goCrazySearch reporting each match position, in ascending order, to out.
+     * @return Name of the engine that ran the search (reported in SearchEvent)
+     */
+    public static String goCrazySearch(String text, String pattern, IntConsumer out) {
         int n = text.length();
         int m = pattern.length();
 
         // 1. Edge Case: Empty Pattern
         if (m == 0) {
-            List<Integer> all = new ArrayList<>();
-            for (int i = 0; i <= n; i++) all.add(i);
-            return all;
+            reportAllPositions(n, out);
+            return "Naive";
+        }
+
+        // 1b. Hot text: once the same large text has been queried often enough,
+        // TextIndexCache builds a suffix array and we answer by binary search instead of scanning.
+        // Skipped under a budget: a build it cuts short is wasted, while a cut-short scan still has results
+        if (AUTO_INDEX && SearchBudget.current() == null) {
+            TextIndex index = TextIndexCache.shared().lookup(text, "SuffixArray", SuffixArray::new);
+            if (index != null) {
+                for (int pos : index.findAll(pattern)) out.accept(pos);
+                return "SuffixArraySearch";
+            }
+        }
+
+        // 1c. Adaptive mode: let the bandit pick, then feed back the measured latency
+        AdaptiveSelector selector = adaptive;
+        if (selector != null) {
+            if (m > n) return "Naive";
+            int bucket = selector.bucket(n, m, PatternProfile.of(pattern));
+            int arm = selector.choose(bucket);
+            long start = System.nanoTime();
+            String engine = runEngine(selector.armName(arm), text, pattern, out);
+            long elapsed = System.nanoTime() - start;
+            SearchBudget budget = SearchBudget.current();
+            if (budget == null || !budget.isExhausted()) {
+                selector.record(bucket, arm, elapsed); // A cut-short run says nothing about the arm
+            }
+            return engine;
+        }
+
+        // 1d. Calibrated cost model replaces the hand-tuned thresholds
+        if (MODEL != null) {
+            if (m > n) return "Naive";
+            return runEngine(MODEL.cheapest(text, pattern), text, pattern, out);
         }
 
         // 2. Heuristic: Single Character -> Naive
         // KMP is good but Naive is competitive and has less overhead
         if (m == 1) {
-            return runNaive(text, pattern);
+            Naive.search(text, pattern, out);
+            return "Naive";
         }
 
         // 3. Heuristic: Very Long Text -> Boyer-Moore
         // For large texts, the skip benefit of BM outweighs setup costs even for short patterns
         if (n > 500 && m > 2) {
-            return BoyerMoore.boyerMooreSearch(text, pattern);
+            TextProfile textProfile = n >= PROFILE_MIN_TEXT ? TextProfile.sample(text) : null;
+            // 3b. ... unless a low-entropy text leaves a short pattern nothing to skip on -> Rabin-Karp
+            if (textProfile != null && textProfile.skipsCollapse(pattern)) {
+                RabinKarp.search(text, pattern, out);
+                return "RabinKarp";
+            }
+            return boyerMoore(text, pattern, textProfile, out);
         }
 
         // 4. Heuristic: Short/Medium Patterns (m <= 10)
@@ -426,173 +885,162 @@ class GoCrazy extends Solution {
             }
 
             if (potentialRepetition) {
-                double repeatScore = calculatePatternRepeatScore(pattern);
+                PatternProfile profile = PatternProfile.of(pattern);
+                double repeatScore = profile.repeatScore();
                 if (repeatScore > 0.5) {
                     // High repetition detected
-                    int uniqueChars = countUniqueChars(pattern);
-                    if (uniqueChars == 1) {
+                    if (profile.period() == 1) {
                         // "All Same Character" case -> KMP is most robust
-                        return runKMP(text, pattern);
+                        KMP.search(text, pattern, out);
+                        return "KMP";
                     } else {
                         // "Worst Case for Naive" case (e.g. "AAAAAAB") -> Boyer-Moore handles this well
-                        return BoyerMoore.boyerMooreSearch(text, pattern);
+                        BoyerMoore.adaptiveSearch(text, pattern, out);
+                        return "BoyerMoore";
                     }
                 }
             }
             // No high repetition -> Naive is fastest
-            return runNaive(text, pattern);
+            Naive.search(text, pattern, out);
+            return "Naive";
         }
 
         // Feature Extraction for remaining cases
-        boolean isBinary = isBinaryData(text, 1000);
-        
+        // Strided sample across the whole text, bounded cost regardless of n
+        TextProfile textProfile = TextProfile.sample(text);
+
         // 5. Heuristic: Binary Data -> Rabin-Karp
-        if (isBinary) {
-            return runRabinKarp(text, pattern);
+        if (textProfile.isBinary()) {
+            RabinKarp.search(text, pattern, out);
+            return "RabinKarp";
         }
 
         // 6. Default -> Boyer-Moore
         // For m > 10, BM is generally the winner
-        return BoyerMoore.boyerMooreSearch(text, pattern);
+        return boyerMoore(text, pattern, textProfile, out);
     }
 
-    // --- Wrappers for existing algorithms to return List<Integer> ---
-    
-    private static List<Integer> runNaive(String text, String pattern) {
-        List<Integer> indices = new ArrayList<>();
-        int n = text.length();
-        int m = pattern.length();
-        for (int i = 0; i <= n - m; i++) {
-            int j;
-            for (j = 0; j < m; j++) {
-                if (text.charAt(i + j) != pattern.charAt(j)) break;
+    /**
+     * Boyer-Moore, probing the pattern's rarest character first when the text's
+     * sample shows its last character at least PROBE_MIN_LAST_FREQUENCY of the time
+     * and the rarest one four times less often: the right-to-left scan would then
+     * keep matching the last character, while the probe fails on one compare.
+     * @param textProfile The text's profile, or null if it was not sampled
+     */
+    private static String boyerMoore(String text, String pattern, TextProfile textProfile, IntConsumer out) {
+        if (textProfile != null) {
+            double last = textProfile.frequency(pattern.charAt(pattern.length() - 1));
+            if (last >= PROBE_MIN_LAST_FREQUENCY
+                    && textProfile.frequency(PatternProfile.of(pattern).rarestChar()) * 4 <= last) {
+                BoyerMoore.rarestFirstSearch(text, pattern, out);
+                return "BoyerMoore";
             }
-            if (j == m) indices.add(i);
         }
-        return indices;
+        BoyerMoore.adaptiveSearch(text, pattern, out);
+        return "BoyerMoore";
     }
 
-    private static List<Integer> runKMP(String text, String pattern) {
-        // Re-implementing core KMP logic to return List<Integer> directly
-        // as the KMP class only exposes String Solve().
-        List<Integer> indices = new ArrayList<>();
-        int n = text.length();
-        int m = pattern.length();
-        if (m == 0) return indices; // Handled in main
-        
-        int[] lps = computeLPS(pattern);
-        int i = 0, j = 0;
-        while (i < n) {
-            if (pattern.charAt(j) == text.charAt(i)) {
-                j++; i++;
-            }
-            if (j == m) {
-                indices.add(i - j);
-                j = lps[j - 1];
-            } else if (i < n && pattern.charAt(j) != text.charAt(i)) {
-                if (j != 0) j = lps[j - 1];
-                else i++;
-            }
+    // --- Dispatch to the engines' IntConsumer scans (the ones behind their solveInto) ---
+
+    private static String runEngine(String name, String text, String pattern, IntConsumer out) {
+        switch (name) {
+            case "Naive":
+                Naive.search(text, pattern, out);
+                return name;
+            case "KMP":
+                KMP.search(text, pattern, out);
+                return name;
+            case "RabinKarp":
+                RabinKarp.search(text, pattern, out);
+                return name;
+            default:
+                BoyerMoore.adaptiveSearch(text, pattern, out);
+                return "BoyerMoore";
         }
-        return indices;
     }
+}
 
-    private static List<Integer> runRabinKarp(String text, String pattern) {
-        // Re-implementing core RK logic to return List<Integer> directly
-        List<Integer> indices = new ArrayList<>();
-        int n = text.length();
-        int m = pattern.length();
-        int prime = 101;
-        int d = 256;
-        long pHash = 0;
-        long tHash = 0;
-        long h = 1;
+/**
+ * Suffix-array backend. Answers the query by binary search over a SuffixArray
+ * that is built on the first call for a text and reused through TextIndexCache.
+ */
+class SuffixArraySearch extends Solution {
+    static {
+        SUBCLASSES.add(SuffixArraySearch.class);
+        System.out.println("SuffixArraySearch registered");
+    }
 
-        for (int i = 0; i < m - 1; i++) h = (h * d) % prime;
+    public SuffixArraySearch() {
+    }
 
-        for (int i = 0; i < m; i++) {
-            pHash = (d * pHash + pattern.charAt(i)) % prime;
-            tHash = (d * tHash + text.charAt(i)) % prime;
+    @Override
+    public String Solve(String text, String pattern) {
+        if (pattern.length() > text.length() || budgetExhausted()) {
+            return "";
         }
-
-        for (int i = 0; i <= n - m; i++) {
-            if (pHash == tHash) {
-                // Verification step
-                boolean match = true;
-                for (int j = 0; j < m; j++) {
-                    if (text.charAt(i + j) != pattern.charAt(j)) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) indices.add(i);
-            }
-            if (i < n - m) {
-                tHash = (d * (tHash - text.charAt(i) * h) + text.charAt(i + m)) % prime;
-                if (tHash < 0) tHash = (tHash + prime);
-            }
+        try {
+            TextIndex index = TextIndexCache.shared().getOrBuild(text, "SuffixArray", SuffixArray::new);
+            return indicesToString(index.findAll(pattern));
+        } catch (SearchBudget.Exhausted e) {
+            return ""; // Stopped during the build or the query; there is no partial result
         }
-        return indices;
     }
+}
 
-    // --- Feature Extraction Helpers ---
+/**
+ * FM-index backend. Answers the query by backward search plus sampled-suffix-array
+ * locate over a compressed FMIndex cached per text in TextIndexCache. Neither the
+ * index nor the cache keeps the text, so between queries only the index is resident
+ * (about n * ceil(log2(sigma + 1)) / 8 bytes plus n / 8 of samples). Building it
+ * peaks at roughly 17 bytes per text character on top of the text; a 16M-character
+ * text needs a heap of about 350 MB to build.
+ */
+class FMIndexSearch extends Solution {
+    static {
+        SUBCLASSES.add(FMIndexSearch.class);
+        System.out.println("FMIndexSearch registered");
+    }
 
-    private static boolean isBinaryData(String text, int limit) {
-        int checkLen = Math.min(text.length(), limit);
-        int nonPrintable = 0;
-        for (int i = 0; i < checkLen; i++) {
-            char c = text.charAt(i);
-            // Check for control chars excluding common whitespace
-            if (c < 32 && c != '\t' && c != '\n' && c != '\r') {
-                nonPrintable++;
-            }
-        }
-        // Threshold: > 10% non-printable characters
-        return (double) nonPrintable / checkLen > 0.1;
+    public FMIndexSearch() {
     }
 
-    private static int[] computeLPS(String pattern) {
-        int m = pattern.length();
-        int[] lps = new int[m];
-        int len = 0;
-        int i = 1;
-        lps[0] = 0;
-        while (i < m) {
-            if (pattern.charAt(i) == pattern.charAt(len)) {
-                len++;
-                lps[i] = len;
-                i++;
-            } else {
-                if (len != 0) len = lps[len - 1];
-                else {
-                    lps[i] = 0;
-                    i++;
-                }
-            }
+    @Override
+    public String Solve(String text, String pattern) {
+        if (pattern.length() > text.length() || budgetExhausted()) {
+            return "";
+        }
+        try {
+            TextIndex index = TextIndexCache.shared().getOrBuild(text, "FMIndex", FMIndex::new);
+            return indicesToString(index.findAll(pattern));
+        } catch (SearchBudget.Exhausted e) {
+            return ""; // Stopped during the build or the query; there is no partial result
         }
-        return lps;
     }
+}
 
-    private static double calculatePatternRepeatScore(String pattern) {
-        if (pattern.isEmpty()) return 0.0;
-        int[] lps = computeLPS(pattern);
-        int maxLps = 0;
-        for (int val : lps) maxLps = Math.max(maxLps, val);
-        // Score is ratio of longest proper prefix/suffix to length
-        return (double) maxLps / pattern.length();
+/**
+ * Suffix-automaton backend. The query walks a SuffixAutomaton (cached per text in
+ * TextIndexCache) in O(m) and enumerates the matched state's endpos set.
+ */
+class SuffixAutomatonSearch extends Solution {
+    static {
+        SUBCLASSES.add(SuffixAutomatonSearch.class);
+        System.out.println("SuffixAutomatonSearch registered");
     }
 
-    private static int countUniqueChars(String pattern) {
-        boolean[] seen = new boolean[256]; // Simple ASCII assumption for speed
-        int count = 0;
-        for (int i = 0; i < pattern.length(); i++) {
-            char c = pattern.charAt(i);
-            if (c < 256 && !seen[c]) {
-                seen[c] = true;
-                count++;
-            }
+    public SuffixAutomatonSearch() {
+    }
+
+    @Override
+    public String Solve(String text, String pattern) {
+        if (pattern.length() > text.length() || budgetExhausted()) {
+            return "";
+        }
+        try {
+            TextIndex index = TextIndexCache.shared().getOrBuild(text, "SuffixAutomaton", SuffixAutomaton::new);
+            return indicesToString(index.findAll(pattern));
+        } catch (SearchBudget.Exhausted e) {
+            return ""; // Stopped during the build or the query; there is no partial result
         }
-        return count == 0 ? 1 : count; // Fallback for all non-ascii
     }
 }
-
@@ -0,0 +1,391 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Machine-calibrated cost model for the scanning engines.
+ *
+ * Each engine's running time is modelled as a linear function of a few query
+ * features (see features()). calibrate() measures every engine over a grid of text
+ * length, pattern length, alphabet size and periodicity on the current machine, fits
+ * the weights by relative-error least squares, and save() persists them. When the
+ * costmodel.file property names a saved model, GoCrazy and ModelPreAnalysis load it
+ * at startup and pick the engine with the lowest predicted cost instead of relying
+ * on hard-coded thresholds.
+ */
+public class CostModel {
+    public static final String DEFAULT_FILE = "costmodel.properties";
+
+    /** System property naming the model file; without it no model is loaded */
+    public static final String PROPERTY = "costmodel.file";
+
+    /** Engines the model chooses between (the per-query scanning engines) */
+    static final String[] ENGINES = {"Naive", "KMP", "RabinKarp", "BoyerMoore"};
+
+    static final String[] FEATURE_NAMES = {"1", "n", "m", "n/m", "n*repeat", "n*min(m,16)/sigma"};
+
+    private static final int[] GRID_N = {256, 4096, 65536};
+    private static final int[] GRID_M = {2, 8, 32};
+    private static final int[] GRID_SIGMA = {2, 4, 26, 90};
+
+    // Model named by PROPERTY, loaded on first use (see loadDefault)
+    private static CostModel defaultModel;
+    private static boolean defaultLoaded;
+
+    private final Map<String, double[]> weights;
+
+    CostModel(Map<String, double[]> weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * Feature vector for a query.
+     * @param n Text length
+     * @param m Pattern length
+     * @param repeatScore Pattern periodicity (PatternProfile.repeatScore)
+     * @param sigma Estimated text alphabet size
+     */
+    static double[] features(int n, int m, double repeatScore, int sigma) {
+        int mm = Math.max(m, 1);
+        return new double[] {
+            1.0,
+            n,
+            m,
+            (double) n / mm,
+            n * repeatScore,
+            (double) n * Math.min(mm, 16) / Math.max(sigma, 1)
+        };
+    }
+
+    /**
+     * @return Predicted running time in nanoseconds, or +infinity if the engine is not in the model
+     */
+    public double predict(String engine, int n, int m, double repeatScore, int sigma) {
+        double[] w = weights.get(engine);
+        if (w == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double[] x = features(n, m, repeatScore, sigma);
+        double cost = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            cost += w[i] * x[i];
+        }
+        return Math.max(cost, 0.0);
+    }
+
+    /**
+     * @return Name of the engine with the lowest predicted cost
+     */
+    public String cheapest(int n, int m, double repeatScore, int sigma) {
+        return cheapestExcept(n, m, repeatScore, sigma, null);
+    }
+
+    /**
+     * @param excluded Engine to leave out, e.g. the one already chosen; may be null
+     * @return Name of the engine with the lowest predicted cost other than excluded,
+     *         or null if there is none
+     */
+    public String cheapestExcept(int n, int m, double repeatScore, int sigma, String excluded) {
+        String best = null;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (String engine : weights.keySet()) {
+            if (engine.equals(excluded)) {
+                continue;
+            }
+            double cost = predict(engine, n, m, repeatScore, sigma);
+            if (best == null || cost < bestCost) {
+                best = engine;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Convenience overload that derives the features from the query itself
+     * (pattern profile plus a bounded text sample).
+     */
+    public String cheapest(String text, String pattern) {
+        return cheapestExcept(text, pattern, null);
+    }
+
+    /**
+     * Convenience overload of cheapestExcept that derives the features from the query.
+     */
+    public String cheapestExcept(String text, String pattern, String excluded) {
+        PatternProfile profile = PatternProfile.of(pattern);
+        int sigma = TextProfile.sample(text).alphabetSize();
+        return cheapestExcept(text.length(), pattern.length(), profile.repeatScore(), sigma, excluded);
+    }
+
+    public Map<String, double[]> getWeights() {
+        return weights;
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Write the model as a properties file.
+     */
+    public void save(Path file) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("features", String.join(",", FEATURE_NAMES));
+        for (Map.Entry<String, double[]> entry : weights.entrySet()) {
+            StringBuilder sb = new StringBuilder();
+            for (double w : entry.getValue()) {
+                if (sb.length() > 0) {
+                    sb.append(",");
+                }
+                sb.append(w);
+            }
+            props.setProperty("engine." + entry.getKey(), sb.toString());
+        }
+        try (Writer out = Files.newBufferedWriter(file)) {
+            props.store(out, "String matching cost model (ns per query = weights . features)");
+        }
+    }
+
+    /**
+     * Read a model written by save().
+     * @throws IOException if the file cannot be read or was written for other features
+     */
+    public static CostModel load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file)) {
+            props.load(in);
+        }
+        if (!String.join(",", FEATURE_NAMES).equals(props.getProperty("features"))) {
+            throw new IOException("Cost model " + file + " was calibrated with different features; recalibrate");
+        }
+        Map<String, double[]> weights = new LinkedHashMap<>();
+        for (String engine : ENGINES) {
+            String value = props.getProperty("engine." + engine);
+            if (value == null) {
+                continue;
+            }
+            String[] parts = value.split(",");
+            double[] w = new double[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                w[i] = Double.parseDouble(parts[i].trim());
+            }
+            weights.put(engine, w);
+        }
+        if (weights.isEmpty()) {
+            throw new IOException("Cost model " + file + " has no engine weights");
+        }
+        return new CostModel(weights);
+    }
+
+    /**
+     * Load the model from the path in the costmodel.file system property. There is no
+     * search of the working directory, so whether a model is active never depends on
+     * where the JVM was started. The file is read (and reported) once per process.
+     * @return The model, or null if the property is unset or the file cannot be used
+     *         (callers fall back to fixed rules)
+     */
+    public static synchronized CostModel loadDefault() {
+        if (!defaultLoaded) {
+            defaultModel = loadConfigured();
+            defaultLoaded = true;
+        }
+        return defaultModel;
+    }
+
+    private static CostModel loadConfigured() {
+        String configured = System.getProperty(PROPERTY);
+        if (configured == null) {
+            return null;
+        }
+        Path path = Paths.get(configured).toAbsolutePath();
+        if (!Files.exists(path)) {
+            System.err.println("Warning: cost model " + path + " does not exist; using the fixed rules");
+            return null;
+        }
+        try {
+            CostModel model = load(path);
+            System.out.println("Cost model loaded from " + path);
+            return model;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: ignoring cost model " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // --- Calibration ---
+
+    /**
+     * Benchmark every engine over the (n, m, alphabet, periodicity) grid and fit a model.
+     * @param seed Seed for the generated inputs
+     * @return The fitted model
+     */
+    public static CostModel calibrate(long seed) {
+        Random random = new Random(seed);
+        List<double[]> rows = new ArrayList<>();
+        Map<String, List<Double>> times = new LinkedHashMap<>();
+        for (String engine : ENGINES) {
+            times.put(engine, new ArrayList<>());
+        }
+
+        // Get every engine JIT-compiled before the first measurement
+        String warmText = generateText(random, 4096, 4, false);
+        String warmPattern = generatePattern(random, warmText, 8, false);
+        for (String engine : ENGINES) {
+            Solution solution = SolutionFactory.getInstance(engine);
+            for (int i = 0; i < 2000; i++) {
+                solution.Solve(warmText, warmPattern);
+            }
+        }
+
+        for (int n : GRID_N) {
+            for (int m : GRID_M) {
+                for (int sigma : GRID_SIGMA) {
+                    for (boolean periodic : new boolean[] {false, true}) {
+                        String text = generateText(random, n, sigma, periodic);
+                        String pattern = generatePattern(random, text, m, periodic);
+                        PatternProfile profile = PatternProfile.of(pattern);
+                        int sampledSigma = TextProfile.sample(text).alphabetSize();
+                        rows.add(features(n, m, profile.repeatScore(), sampledSigma));
+                        for (String engine : ENGINES) {
+                            times.get(engine).add((double) medianTime(SolutionFactory.getInstance(engine), text, pattern));
+                        }
+                    }
+                }
+            }
+            System.out.printf("  calibrated n = %d%n", n);
+        }
+
+        Map<String, double[]> weights = new LinkedHashMap<>();
+        for (String engine : ENGINES) {
+            List<Double> y = times.get(engine);
+            weights.put(engine, fitRelative(rows, y));
+        }
+        return new CostModel(weights);
+    }
+
+    /**
+     * Median of repeated timings after a short warm-up.
+     */
+    private static long medianTime(Solution engine, String text, String pattern) {
+        for (int i = 0; i < 5; i++) {
+            engine.Solve(text, pattern);
+        }
+        long[] samples = new long[15];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            engine.Solve(text, pattern);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private static String generateText(Random random, int n, int sigma, boolean periodic) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            // Periodic texts are mostly the first symbol: the worst case for Naive and BM
+            if (periodic && random.nextInt(16) != 0) {
+                sb.append(symbol(0));
+            } else {
+                sb.append(symbol(random.nextInt(sigma)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String generatePattern(Random random, String text, int m, boolean periodic) {
+        if (periodic) {
+            // "aaa...ab": long border, fails only at the last character
+            StringBuilder sb = new StringBuilder(m);
+            for (int i = 0; i < m - 1; i++) {
+                sb.append(symbol(0));
+            }
+            sb.append(symbol(1));
+            return sb.toString();
+        }
+        int start = random.nextInt(text.length() - m + 1);
+        return text.substring(start, start + m);
+    }
+
+    private static char symbol(int k) {
+        return (char) (' ' + 1 + k); // Printable ASCII starting at '!'
+    }
+
+    /**
+     * Least squares fit minimizing the relative error sum(((w . x) - y) / y)^2,
+     * so small and large inputs weigh equally. Solved via ridge-regularized normal
+     * equations.
+     */
+    static double[] fitRelative(List<double[]> rows, List<Double> y) {
+        int k = rows.get(0).length;
+        double[][] ata = new double[k][k];
+        double[] aty = new double[k];
+        for (int r = 0; r < rows.size(); r++) {
+            double scale = 1.0 / Math.max(y.get(r), 1.0);
+            double[] x = rows.get(r);
+            for (int i = 0; i < k; i++) {
+                double xi = x[i] * scale;
+                aty[i] += xi * y.get(r) * scale;
+                for (int j = 0; j < k; j++) {
+                    ata[i][j] += xi * x[j] * scale;
+                }
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            ata[i][i] += 1e-9 * Math.max(ata[i][i], 1e-12);
+        }
+        return solve(ata, aty);
+    }
+
+    /**
+     * Gaussian elimination with partial pivoting.
+     */
+    private static double[] solve(double[][] a, double[] b) {
+        int k = b.length;
+        for (int col = 0; col < k; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < k; r++) {
+                if (Math.abs(a[r][col]) > Math.abs(a[pivot][col])) {
+                    pivot = r;
+                }
+            }
+            double[] rowTmp = a[col];
+            a[col] = a[pivot];
+            a[pivot] = rowTmp;
+            double bTmp = b[col];
+            b[col] = b[pivot];
+            b[pivot] = bTmp;
+            if (Math.abs(a[col][col]) < 1e-300) {
+                continue; // Feature carries no information; leave its weight at 0
+            }
+            for (int r = col + 1; r < k; r++) {
+                double f = a[r][col] / a[col][col];
+                for (int c = col; c < k; c++) {
+                    a[r][c] -= f * a[col][c];
+                }
+                b[r] -= f * b[col];
+            }
+        }
+        double[] w = new double[k];
+        for (int r = k - 1; r >= 0; r--) {
+            if (Math.abs(a[r][r]) < 1e-300) {
+                continue;
+            }
+            double sum = b[r];
+            for (int c = r + 1; c < k; c++) {
+                sum -= a[r][c] * w[c];
+            }
+            w[r] = sum / a[r][r];
+        }
+        return w;
+    }
+}
@@ -0,0 +1,347 @@
+import java.util.Arrays;
+
+/**
+ * FM-index: a compressed self-index built from the Burrows-Wheeler transform.
+ *
+ * The BWT is stored in a wavelet matrix of bit-packed rank bitvectors, taking about
+ * n * ceil(log2(sigma + 1)) bits plus a small rank directory. The text itself is not
+ * retained. Suffix array values are only kept for text positions that are multiples
+ * of the sampling rate; the others are recovered by walking the LF-mapping.
+ *
+ * count(pattern) runs backward search in O(m log sigma). findAll additionally pays
+ * at most (sampleRate - 1) LF steps per occurrence. Construction goes through
+ * SuffixArray.build, whose SA-IS working arrays put the build peak at roughly 17
+ * bytes per text character on top of the text; the suffix array is released before
+ * the wavelet matrix is built, which then reorders the BWT codes in place.
+ * Construction and findAll call SearchBudget.checkpoint() in their loops, so a search
+ * under a budget can abandon them.
+ */
+public class FMIndex implements TextIndex {
+    public static final int DEFAULT_SAMPLE_RATE = 32;
+
+    private final int n;
+    private final int sampleRate;
+    private final char[] alphabet;      // Distinct text characters; code = position + 1, code 0 is the sentinel
+    private final long[] firstRow;      // firstRow[c] = number of BWT symbols smaller than c (the C array)
+    private final WaveletMatrix bwt;
+    private final BitVector sampledRows;
+    private final int[] samples;        // Text position for each sampled row, in row order
+
+    public FMIndex(String text) {
+        this(text, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * @param text The text to index
+     * @param sampleRate Keep one suffix array value per sampleRate text positions
+     */
+    public FMIndex(String text, int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        }
+        this.n = text.length();
+        this.sampleRate = sampleRate;
+        this.alphabet = distinctChars(text);
+
+        // Suffix array of text + sentinel: the sentinel suffix sorts first
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(1);
+        int[] textSa = SuffixArray.build(text);
+        int rows = n + 1;
+        int[] codes = new int[rows];
+        BitVector.Builder sampled = new BitVector.Builder(rows);
+        int sampleCount = 0;
+        for (int row = 0; row < rows; row++) {
+            SearchBudget.checkpoint(budget, row, checkMask);
+            int pos = row == 0 ? n : textSa[row - 1];
+            codes[row] = pos == 0 ? 0 : code(text.charAt(pos - 1));
+            if (pos % sampleRate == 0) {
+                sampled.set(row);
+                sampleCount++;
+            }
+        }
+        this.samples = new int[sampleCount];
+        for (int row = 0, k = 0; row < rows; row++) {
+            int pos = row == 0 ? n : textSa[row - 1];
+            if (pos % sampleRate == 0) {
+                samples[k++] = pos;
+            }
+        }
+        textSa = null; // Not needed any more; let it go before the wavelet matrix allocates
+        this.sampledRows = sampled.build();
+
+        this.firstRow = new long[alphabet.length + 2];
+        for (int c : codes) {
+            firstRow[c + 1]++;
+        }
+        for (int c = 1; c < firstRow.length; c++) {
+            firstRow[c] += firstRow[c - 1];
+        }
+
+        this.bwt = new WaveletMatrix(codes, alphabet.length, budget);
+    }
+
+    @Override
+    public int textLength() {
+        return n;
+    }
+
+    /**
+     * @return The suffix array sampling rate this index was built with
+     */
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int count(String pattern) {
+        if (pattern.isEmpty()) {
+            return n + 1;
+        }
+        long range = backwardSearch(pattern);
+        return (int) (range & 0xFFFFFFFFL) - (int) (range >>> 32);
+    }
+
+    @Override
+    public int[] findAll(String pattern) {
+        if (pattern.isEmpty()) {
+            return TextIndex.allPositions(n);
+        }
+        long range = backwardSearch(pattern);
+        int sp = (int) (range >>> 32);
+        int ep = (int) (range & 0xFFFFFFFFL);
+        int[] positions = new int[ep - sp];
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(sampleRate); // Up to sampleRate LF steps per row
+        for (int row = sp; row < ep; row++) {
+            SearchBudget.checkpoint(budget, row - sp, checkMask);
+            positions[row - sp] = locate(row);
+        }
+        TextIndex.sortPositions(positions, n);
+        return positions;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return bwt.sizeInBytes() + sampledRows.sizeInBytes()
+                + 16 + 4L * samples.length + 16 + 8L * firstRow.length + 16 + 2L * alphabet.length;
+    }
+
+    /**
+     * Backward search for the BWT row range [sp, ep) of suffixes prefixed by pattern.
+     * @return sp in the high 32 bits, ep in the low 32 bits (sp == ep if absent)
+     */
+    private long backwardSearch(String pattern) {
+        int sp = 0;
+        int ep = n + 1;
+        for (int i = pattern.length() - 1; i >= 0 && sp < ep; i--) {
+            int c = code(pattern.charAt(i));
+            if (c < 0) {
+                return 0L;
+            }
+            sp = (int) firstRow[c] + bwt.rank(c, sp);
+            ep = (int) firstRow[c] + bwt.rank(c, ep);
+        }
+        return sp < ep ? ((long) sp << 32) | ep : 0L;
+    }
+
+    /**
+     * Recover the text position of a BWT row by walking LF to the nearest sample.
+     */
+    private int locate(int row) {
+        int steps = 0;
+        while (!sampledRows.get(row)) {
+            int c = bwt.access(row);
+            row = (int) firstRow[c] + bwt.rank(c, row);
+            steps++;
+        }
+        return samples[sampledRows.rank1(row)] + steps;
+    }
+
+    private int code(char c) {
+        int idx = Arrays.binarySearch(alphabet, c);
+        return idx < 0 ? -1 : idx + 1;
+    }
+
+    private static char[] distinctChars(String text) {
+        int maxChar = 0;
+        for (int i = 0; i < text.length(); i++) {
+            maxChar = Math.max(maxChar, text.charAt(i));
+        }
+        boolean[] seen = new boolean[maxChar + 1];
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!seen[c]) {
+                seen[c] = true;
+                count++;
+            }
+        }
+        char[] chars = new char[count];
+        for (int c = 0, k = 0; k < count; c++) {
+            if (seen[c]) {
+                chars[k++] = (char) c;
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Bit-packed bitvector with a rank directory every 512 bits (6.25% overhead).
+     */
+    static final class BitVector {
+        private static final int WORDS_PER_BLOCK = 8;
+
+        private final long[] words;
+        private final int[] blockRanks;
+
+        private BitVector(long[] words) {
+            this.words = words;
+            this.blockRanks = new int[words.length / WORDS_PER_BLOCK + 1];
+            int ones = 0;
+            for (int w = 0; w < words.length; w++) {
+                if (w % WORDS_PER_BLOCK == 0) {
+                    blockRanks[w / WORDS_PER_BLOCK] = ones;
+                }
+                ones += Long.bitCount(words[w]);
+            }
+        }
+
+        boolean get(int i) {
+            return (words[i >>> 6] & (1L << i)) != 0;
+        }
+
+        /**
+         * @return Number of set bits in [0, i)
+         */
+        int rank1(int i) {
+            int word = i >>> 6;
+            int block = word / WORDS_PER_BLOCK;
+            int rank = blockRanks[block];
+            for (int w = block * WORDS_PER_BLOCK; w < word; w++) {
+                rank += Long.bitCount(words[w]);
+            }
+            int bit = i & 63;
+            if (bit != 0) {
+                rank += Long.bitCount(words[word] & ((1L << bit) - 1));
+            }
+            return rank;
+        }
+
+        long sizeInBytes() {
+            return 16 + 8L * words.length + 16 + 4L * blockRanks.length;
+        }
+
+        static final class Builder {
+            private final long[] words;
+
+            Builder(int length) {
+                this.words = new long[(length >>> 6) + 1];
+            }
+
+            void set(int i) {
+                words[i >>> 6] |= 1L << i;
+            }
+
+            BitVector build() {
+                return new BitVector(words);
+            }
+        }
+    }
+
+    /**
+     * Wavelet matrix over integer symbols: one bitvector per bit of the symbol code,
+     * giving access and rank in O(log sigma) with n log sigma bits of storage.
+     */
+    static final class WaveletMatrix {
+        private final BitVector[] levels;
+        private final int[] zeros;
+
+        /**
+         * @param symbols Symbol codes in [0, maxSymbol]; reordered in place
+         * @param maxSymbol Largest code that may occur
+         * @param budget Budget of the current search, checked between levels; or null
+         */
+        WaveletMatrix(int[] symbols, int maxSymbol, SearchBudget budget) {
+            int bits = 32 - Integer.numberOfLeadingZeros(Math.max(maxSymbol, 1));
+            int length = symbols.length;
+            this.levels = new BitVector[bits];
+            this.zeros = new int[bits];
+
+            int[] current = symbols;
+            int[] next = new int[length];
+            for (int level = 0; level < bits; level++) {
+                SearchBudget.checkpoint(budget, 0, 0);
+                int shift = bits - 1 - level;
+                BitVector.Builder builder = new BitVector.Builder(length);
+                int zeroCount = 0;
+                for (int i = 0; i < length; i++) {
+                    if (((current[i] >>> shift) & 1) == 0) {
+                        zeroCount++;
+                    } else {
+                        builder.set(i);
+                    }
+                }
+                // Stable partition: zero-bit symbols first, then one-bit symbols
+                int z = 0;
+                int o = zeroCount;
+                for (int i = 0; i < length; i++) {
+                    if (((current[i] >>> shift) & 1) == 0) {
+                        next[z++] = current[i];
+                    } else {
+                        next[o++] = current[i];
+                    }
+                }
+                levels[level] = builder.build();
+                zeros[level] = zeroCount;
+                int[] tmp = current;
+                current = next;
+                next = tmp;
+            }
+        }
+
+        /**
+         * @return The symbol at position i
+         */
+        int access(int i) {
+            int symbol = 0;
+            for (int level = 0; level < levels.length; level++) {
+                BitVector bv = levels[level];
+                if (bv.get(i)) {
+                    symbol = (symbol << 1) | 1;
+                    i = zeros[level] + bv.rank1(i);
+                } else {
+                    symbol <<= 1;
+                    i = i - bv.rank1(i);
+                }
+            }
+            return symbol;
+        }
+
+        /**
+         * @return Number of occurrences of symbol in [0, i)
+         */
+        int rank(int symbol, int i) {
+            int start = 0;
+            for (int level = 0; level < levels.length; level++) {
+                BitVector bv = levels[level];
+                if (((symbol >>> (levels.length - 1 - level)) & 1) != 0) {
+                    start = zeros[level] + bv.rank1(start);
+                    i = zeros[level] + bv.rank1(i);
+                } else {
+                    start = start - bv.rank1(start);
+                    i = i - bv.rank1(i);
+                }
+            }
+            return i - start;
+        }
+
+        long sizeInBytes() {
+            long bytes = 16 + 4L * zeros.length;
+            for (BitVector bv : levels) {
+                bytes += bv.sizeInBytes();
+            }
+            return bytes;
+        }
+    }
+}
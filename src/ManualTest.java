@@ -14,12 +14,128 @@ import java.util.*;
  *   java ManualTest share              - Run only shared tests (for students)
  *   java ManualTest hidden             - Run only hidden tests (for grading)
  *   java ManualTest preanalysis        - Run with pre-analysis comparison
+ *   java ManualTest calibrate [file]   - Benchmark the engines and write a cost model
+ *   java ManualTest workload [max] [seed] - Generate seeded workloads up to max chars (e.g. 16M) and run them
+ *   java ManualTest scaling [max] [seed] - Fit how each engine's time grows with n and m (up to max chars)
+ *   java ManualTest verify             - Check every algorithm on every test (correctness only, no timing)
+ *   java ManualTest verify workload [max] [seed] - ... on the generated workloads instead
+ *   java ManualTest verify baseline    - Check that --baseline-check catches planted slowdowns
+ *
+ * Options (may be combined with any of the above):
+ *   --cache                            - Serve repeated queries from a ResultCache
+ *   --model[=FILE]                     - Use the calibrated cost model (default costmodel.properties) in
+ *                                        GoCrazy and ModelPreAnalysis instead of the fixed rules
+ *   --adaptive                         - Let GoCrazy learn its engine choice online
+ *   --auto-index                       - Let GoCrazy answer often-queried large texts from a cached suffix array
+ *   --timeout=MS                       - Stop each search after MS milliseconds (partial result = TIMEOUT)
+ *   --stats                            - Also print median/p90/p99/CV and CIs for every run
+ *   --ops                              - Count comparisons, shifts, LPS fallbacks and hash hits (see OpCounters)
+ *   --parallel[=N]                     - verify: spread the checks over N threads (default: all cores)
+ *   --encoded                          - verify: compare results as MatchEncoding bytes (see Solution.solveEncoded)
+ *   --baseline-write=FILE              - Save time/allocation/op-count results as a performance baseline
+ *   --baseline-append=FILE             - Add this run to a baseline (created if missing), widening its time envelope
+ *   --baseline-check=FILE              - Compare against a saved baseline; exit 1 on any regression
+ *   --threshold=PCT                    - Allowed growth before a change counts as a regression (default 10)
+ *   --json=FILE                        - Also write the results, raw samples included, as JSON (see ResultExporter)
+ *   --csv=FILE                         - ... and/or as CSV, one row per test and algorithm
  */
 public class ManualTest {
+
+    // Pre-analysis used by the comparison runs (set from --model or -Dcostmodel.file)
+    private static boolean useCostModel = false;
+
+    // Print the full timing distribution table (set from --stats)
+    private static boolean showTimingDistribution = false;
+
+    // Largest generated text for the workload command when no size is given
+    private static final String DEFAULT_WORKLOAD_SIZE = "256K";
+
+    // Worker threads for verify (set from --parallel[=N]; 0 = run sequentially)
+    private static int parallelism = 0;
+
+    // Performance baseline files (set from --baseline-write= / --baseline-append= / --baseline-check=)
+    // and allowed growth
+    private static String baselineWriteFile = null;
+    private static boolean baselineAppend = false;
+    private static String baselineCheckFile = null;
+    private static double regressionThreshold = PerformanceBaseline.DEFAULT_THRESHOLD;
+
+    // Machine-readable result files (set from --json= / --csv=)
+    private static String jsonFile = null;
+    private static String csvFile = null;
+
+    // Process exit status; set to non-zero by a failed baseline check
+    private static int exitCode = 0;
     
     public static void main(String[] args) {
+        // Must be set before OpCounters is first loaded, since ENABLED is read once
+        if (Arrays.asList(args).contains("--ops")) {
+            System.setProperty(OpCounters.PROPERTY, "true");
+        }
+        // Likewise GoCrazy reads its adaptive and auto-index switches and its cost model once,
+        // when the engines are registered below
+        if (Arrays.asList(args).contains("--adaptive")) {
+            System.setProperty("gocrazy.adaptive", "true");
+        }
+        if (Arrays.asList(args).contains("--auto-index")) {
+            System.setProperty("gocrazy.autoindex", "true");
+        }
+        for (String arg : args) {
+            if (arg.equals("--model") && System.getProperty(CostModel.PROPERTY) == null) {
+                System.setProperty(CostModel.PROPERTY, CostModel.DEFAULT_FILE);
+            } else if (arg.startsWith("--model=")) {
+                System.setProperty(CostModel.PROPERTY, arg.substring("--model=".length()));
+            }
+        }
+
         printHeader();
 
+        // Separate --options from the command and test indices
+        List<String> options = new ArrayList<>();
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                options.add(arg);
+            } else {
+                positional.add(arg);
+            }
+        }
+        args = positional.toArray(new String[0]);
+
+        if (options.contains("--cache")) {
+            ManualTestRunner.setResultCache(new ResultCache(ResultCache.DEFAULT_BUDGET_BYTES));
+        }
+        useCostModel = System.getProperty(CostModel.PROPERTY) != null;
+        showTimingDistribution = options.contains("--stats");
+        if (options.contains("--encoded")) {
+            TestRunner.setEncodedResults(true);
+        }
+        for (String option : options) {
+            if (option.equals("--parallel")) {
+                parallelism = Runtime.getRuntime().availableProcessors();
+            } else if (option.startsWith("--parallel=")) {
+                parallelism = Integer.parseInt(option.substring("--parallel=".length()));
+            }
+            if (option.startsWith("--baseline-write=")) {
+                baselineWriteFile = option.substring("--baseline-write=".length());
+            } else if (option.startsWith("--baseline-append=")) {
+                baselineWriteFile = option.substring("--baseline-append=".length());
+                baselineAppend = true;
+            } else if (option.startsWith("--baseline-check=")) {
+                baselineCheckFile = option.substring("--baseline-check=".length());
+            } else if (option.startsWith("--threshold=")) {
+                regressionThreshold = Double.parseDouble(option.substring("--threshold=".length())) / 100.0;
+            }
+            if (option.startsWith("--json=")) {
+                jsonFile = option.substring("--json=".length());
+            } else if (option.startsWith("--csv=")) {
+                csvFile = option.substring("--csv=".length());
+            }
+            if (option.startsWith("--timeout=")) {
+                ManualTestRunner.setTimeBudgetMillis(Long.parseLong(option.substring("--timeout=".length())));
+            }
+        }
+
         // Register algorithms by loading classes
         try {
             Class.forName("Naive");
@@ -27,6 +143,9 @@ public class ManualTest {
             Class.forName("RabinKarp");
             Class.forName("BoyerMoore");
             Class.forName("GoCrazy");
+            Class.forName("SuffixArraySearch");
+            Class.forName("FMIndexSearch");
+            Class.forName("SuffixAutomatonSearch");
         } catch (ClassNotFoundException e) {
             System.err.println("Error loading algorithm classes: " + e.getMessage());
         }
@@ -64,6 +183,31 @@ public class ManualTest {
             // Run only hidden tests
             System.out.println("Running HIDDEN tests (for grading)...\n");
             runWithFullComparison(allTests, hiddenTests);
+        } else if (args[0].equalsIgnoreCase("calibrate")) {
+            // Fit the cost model for this machine
+            calibrate(args.length > 1 ? args[1] : CostModel.DEFAULT_FILE);
+        } else if (args[0].equalsIgnoreCase("workload") || args[0].equalsIgnoreCase("generate")) {
+            // Generated workloads, streamed one case at a time
+            long maxTextLength = WorkloadGenerator.parseSize(args.length > 1 ? args[1] : DEFAULT_WORKLOAD_SIZE);
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : WorkloadGenerator.DEFAULT_SEED;
+            runWorkload(maxTextLength, seed);
+        } else if (args[0].equalsIgnoreCase("scaling")) {
+            // Time-vs-n and time-vs-m curves with fitted exponents
+            long maxTextLength = args.length > 1 ? WorkloadGenerator.parseSize(args[1]) : ScalingSuite.DEFAULT_MAX_N;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : WorkloadGenerator.DEFAULT_SEED;
+            runScaling((int) Math.min(maxTextLength, WorkloadGenerator.MAX_TEXT_LENGTH), seed);
+        } else if (args[0].equalsIgnoreCase("verify")) {
+            // Correctness only, on the test files or on generated workloads
+            if (args.length > 1 && args[1].equalsIgnoreCase("baseline")) {
+                verifyBaseline();
+            } else if (args.length > 1 && args[1].equalsIgnoreCase("workload")) {
+                long maxTextLength = WorkloadGenerator.parseSize(args.length > 2 ? args[2] : DEFAULT_WORKLOAD_SIZE);
+                long seed = args.length > 3 ? Long.parseLong(args[3]) : WorkloadGenerator.DEFAULT_SEED;
+                List<WorkloadGenerator.Spec> specs = WorkloadGenerator.suite(seed, maxTextLength);
+                verify(specs.size(), i -> TestCaseLoader.generateOrSkip(specs.get(i)));
+            } else {
+                verify(allTests.size(), allTests::get);
+            }
         } else if (args[0].equalsIgnoreCase("preanalysis") || args[0].equalsIgnoreCase("pre")) {
             // Run with pre-analysis comparison
             System.out.println("Running with PRE-ANALYSIS comparison...\n");
@@ -77,6 +221,10 @@ public class ManualTest {
             }
             runWithFullComparison(allTests, testIndices);
         }
+
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
     }
     
     /**
@@ -94,22 +242,85 @@ public class ManualTest {
 
         // Display detailed time comparison
         ManualTestRunner.printDetailedResultsTable(results);
+        if (showTimingDistribution) {
+            ManualTestRunner.printTimingDistribution(results);
+        }
+        if (baselineWriteFile != null || baselineCheckFile != null) {
+            handleBaseline(results);
+        }
 
         // Add PreAnalysis comparison using YOUR implementation
+        PreAnalysis preAnalysis = createPreAnalysis();
         System.out.println("\n" + "=".repeat(120));
-        System.out.println("Running PreAnalysis comparison (using YOUR StudentPreAnalysis)...");
+        System.out.println("Running PreAnalysis comparison (using " + preAnalysis.getClass().getSimpleName() + ")...");
         System.out.println("=".repeat(120));
 
-        PreAnalysis preAnalysis = new StudentPreAnalysis();
         List<PreAnalysisComparison.ComparisonResult> preAnalysisResults =
                 PreAnalysisComparison.runComparison(preAnalysis, testsToRun);
 
         // Print detailed algorithm comparison
         PreAnalysisComparison.printDetailedAlgorithmComparison(preAnalysisResults);
+        exportResults(results, preAnalysisResults, preAnalysis);
 
         System.out.println("\n✓ Testing complete!");
     }
 
+    /**
+     * Write the results to the --json= / --csv= files, if any
+     */
+    private static void exportResults(List<ManualTestRunner.TestExecutionResult> results,
+                                      List<PreAnalysisComparison.ComparisonResult> preAnalysisResults,
+                                      PreAnalysis preAnalysis) {
+        try {
+            if (jsonFile != null) {
+                ResultExporter.writeJson(java.nio.file.Paths.get(jsonFile), results, preAnalysisResults,
+                        preAnalysis.getClass().getSimpleName());
+                System.out.println("\n✓ JSON results written to " + jsonFile);
+            }
+            if (csvFile != null) {
+                ResultExporter.writeCsv(java.nio.file.Paths.get(csvFile), results, preAnalysisResults);
+                System.out.println("\n✓ CSV results written to " + csvFile);
+            }
+        } catch (java.io.IOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            exitCode = 2;
+        }
+    }
+
+    /**
+     * Write the run's results as a baseline and/or check them against a saved one
+     */
+    private static void handleBaseline(List<ManualTestRunner.TestExecutionResult> results) {
+        PerformanceBaseline current = PerformanceBaseline.capture(results);
+        if (baselineCheckFile != null) {
+            try {
+                PerformanceBaseline baseline = PerformanceBaseline.load(java.nio.file.Paths.get(baselineCheckFile));
+                List<PerformanceBaseline.Regression> regressions = baseline.check(current, regressionThreshold);
+                PerformanceBaseline.printRegressions(regressions, regressionThreshold, baseline.size(),
+                        baseline.runs(), baseline.drift(current), baseline.runJump());
+                if (!regressions.isEmpty()) {
+                    exitCode = 1;
+                }
+            } catch (java.io.IOException e) {
+                System.err.println("Error reading baseline: " + e.getMessage());
+                exitCode = 2;
+            }
+        }
+        if (baselineWriteFile != null) {
+            try {
+                java.nio.file.Path file = java.nio.file.Paths.get(baselineWriteFile);
+                PerformanceBaseline written = baselineAppend && java.nio.file.Files.exists(file)
+                        ? PerformanceBaseline.load(file).merge(current) : current;
+                written.save(file);
+                System.out.println("\n✓ Baseline with " + written.size() + " pair(s) from " + written.runs()
+                        + " run(s) written to " + baselineWriteFile);
+            } catch (java.io.IOException e) {
+                System.err.println("Error writing baseline: " + e.getMessage());
+                exitCode = 2;
+            }
+        }
+    }
+
     /**
      * Run with pre-analysis comparison
      * This tests YOUR PreAnalysis implementation (StudentPreAnalysis)
@@ -119,8 +330,8 @@ public class ManualTest {
         System.out.println("NOTE: This uses YOUR StudentPreAnalysis implementation.");
         System.out.println("      Make sure to implement the chooseAlgorithm() method!\n");
 
-        // Use StudentPreAnalysis - this is YOUR implementation
-        PreAnalysis preAnalysis = new StudentPreAnalysis();
+        // Use StudentPreAnalysis - this is YOUR implementation (or the cost model with --model)
+        PreAnalysis preAnalysis = createPreAnalysis();
 
         List<PreAnalysisComparison.ComparisonResult> preAnalysisResults =
                 PreAnalysisComparison.runComparison(preAnalysis, allTests);
@@ -130,10 +341,116 @@ public class ManualTest {
 
         // Print detailed algorithm comparison
         PreAnalysisComparison.printDetailedAlgorithmComparison(preAnalysisResults);
+        exportResults(new ArrayList<>(), preAnalysisResults, preAnalysis);
 
         System.out.println("\n✓ Pre-analysis testing complete!");
     }
     
+    /**
+     * The pre-analysis to compare: StudentPreAnalysis, or ModelPreAnalysis with --model
+     */
+    private static PreAnalysis createPreAnalysis() {
+        return PreAnalysis.create(useCostModel);
+    }
+
+    /**
+     * Run the cost-model calibration and save the result
+     */
+    private static void calibrate(String file) {
+        System.out.println("Calibrating cost model (this benchmarks every engine over a grid of inputs)...\n");
+        CostModel model = CostModel.calibrate(42L);
+
+        System.out.println();
+        System.out.printf("%-12s", "Engine");
+        for (String feature : CostModel.FEATURE_NAMES) {
+            System.out.printf(" %18s", feature);
+        }
+        System.out.println();
+        System.out.println("-".repeat(12 + 19 * CostModel.FEATURE_NAMES.length));
+        for (Map.Entry<String, double[]> entry : model.getWeights().entrySet()) {
+            System.out.printf("%-12s", entry.getKey());
+            for (double w : entry.getValue()) {
+                System.out.printf(" %18.6g", w);
+            }
+            System.out.println();
+        }
+
+        try {
+            model.save(java.nio.file.Paths.get(file));
+            System.out.println("\n✓ Cost model written to " + file);
+            String flag = file.equals(CostModel.DEFAULT_FILE) ? "--model" : "--model=" + file;
+            System.out.println("  Run with " + flag + " to have GoCrazy and ModelPreAnalysis use it.");
+        } catch (java.io.IOException e) {
+            System.err.println("Error writing cost model: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Generate the seeded workload suite and run every engine on it, one case at a time
+     */
+    private static void runWorkload(long maxTextLength, long seed) {
+        System.out.println("Running generated workloads up to " + WorkloadGenerator.formatSize(maxTextLength)
+                + " characters (seed " + seed + ")...\n");
+        int failed = ManualTestRunner.runWorkload(TestCaseLoader.streamGeneratedTestCases(seed, maxTextLength));
+        System.out.println(failed == 0 ? "\n✓ Workload complete!" : "\n✗ Workload complete with failures");
+    }
+
+    /**
+     * Sweep n and m for every engine and input class and report the fitted scaling exponents
+     */
+    private static void runScaling(int maxTextLength, long seed) {
+        System.out.println("Measuring scaling up to n = " + WorkloadGenerator.formatSize(maxTextLength)
+                + " (seed " + seed + ")...\n");
+        List<ScalingSuite.Curve> curves = ScalingSuite.run(seed, maxTextLength);
+        ScalingSuite.printCurves(curves);
+        System.out.println("\n✓ Scaling complete!");
+    }
+
+    /**
+     * Check every algorithm on every test case and print which passed, sequentially or
+     * (with --parallel) on a work-stealing pool
+     */
+    private static void verify(int count, java.util.function.IntFunction<TestCase> loader) {
+        System.out.println("Verifying " + count + " test case(s)"
+                + (parallelism > 0 ? " on " + parallelism + " threads" : "") + "...\n");
+        long start = System.nanoTime();
+        List<TestRunner.TestResult> results;
+        if (parallelism > 0) {
+            results = TestRunner.runAllTestsParallel(count, loader, parallelism);
+        } else {
+            List<TestCase> testCases = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                TestCase testCase = loader.apply(i);
+                if (testCase != null) {
+                    testCases.add(testCase);
+                }
+            }
+            results = TestRunner.runAllTests(testCases);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        TestRunner.printComparisonTable(results);
+        int failed = TestRunner.countFailures(results);
+        System.out.printf("%n%d check(s) in %.1f s, %d failed%n", results.size(), elapsed / 1e9, failed);
+        System.out.println(failed == 0 ? "\n✓ Verification complete!" : "\n✗ Verification found failures");
+    }
+
+    /**
+     * Run PerformanceBaseline's self-check; exit 1 if a planted slowdown was missed or
+     * an unchanged run was flagged
+     */
+    private static void verifyBaseline() {
+        List<String> failures = PerformanceBaseline.selfCheck();
+        for (String failure : failures) {
+            System.out.println("✗ " + failure);
+        }
+        System.out.println(failures.isEmpty() ? "✓ Baseline check catches the planted slowdowns"
+                : "✗ Baseline check failed " + failures.size() + " case(s)");
+        if (!failures.isEmpty()) {
+            exitCode = 1;
+        }
+    }
+
     /**
      * List all available tests
      */
@@ -175,6 +492,21 @@ public class ManualTest {
         System.out.println("  java ManualTest hidden       - Run only hidden tests (for grading)");
         System.out.println("  java ManualTest preanalysis  - Run with pre-analysis comparison");
         System.out.println("  java ManualTest list         - Show this list");
+        System.out.println("  java ManualTest share --cache - Run with the result cache enabled");
+        System.out.println("  java ManualTest calibrate    - Fit the cost model for this machine");
+        System.out.println("  java ManualTest preanalysis --model - Compare using the calibrated cost model");
+        System.out.println("  java ManualTest share --adaptive - GoCrazy learns the fastest engine online");
+        System.out.println("  java ManualTest share --timeout=50 - Cut off any search after 50 ms");
+        System.out.println("  java ManualTest share --stats - Show median/p90/p99/CV per engine and test");
+        System.out.println("  java ManualTest share --ops  - Count comparisons/shifts/hash hits per engine and test");
+        System.out.println("  java ManualTest verify --parallel - Check correctness of every engine on all cores");
+        System.out.println("  java ManualTest verify baseline - Check that baseline checks catch planted slowdowns");
+        System.out.println("  java ManualTest share --baseline-write=perf.properties - Save a performance baseline");
+        System.out.println("  java ManualTest share --baseline-append=perf.properties - Add another run to it (repeat 3-5 times)");
+        System.out.println("  java ManualTest share --baseline-check=perf.properties - Exit 1 if anything regressed");
+        System.out.println("  java ManualTest share --json=results.json --csv=results.csv - Also save machine-readable results");
+        System.out.println("  java ManualTest workload 16M - Run generated workloads with texts up to 16M chars");
+        System.out.println("  java ManualTest scaling 4M - Fit time-vs-n and time-vs-m exponents for every engine");
     }
     
     /**
@@ -4,6 +4,54 @@ import java.util.*;
  * Manual Test Runner - Allows running specific tests and viewing detailed time comparisons
  */
 public class ManualTestRunner {
+
+    // Optional memoization in front of the engines (null = every run calls Solve)
+    private static ResultCache resultCache;
+
+    /**
+     * Serve the checked and reported results through a result cache, or pass null to
+     * disable it. The timed runs always call the engine.
+     */
+    public static void setResultCache(ResultCache cache) {
+        resultCache = cache;
+    }
+
+    // Per-run time budget in milliseconds (0 = unlimited)
+    private static long timeBudgetMillis = 0;
+
+    /**
+     * Run every Solve call under a SearchBudget of the given length, or pass 0 to disable it
+     */
+    public static void setTimeBudgetMillis(long millis) {
+        timeBudgetMillis = millis;
+    }
+
+    /**
+     * Solve directly or under the time budget. This is what gets timed, so it never
+     * goes through the result cache: a cache hit is not the engine's time.
+     */
+    private static String solve(Solution algorithm, String text, String pattern, AlgorithmTestResult algResult) {
+        if (timeBudgetMillis > 0) {
+            SearchResult result = algorithm.solveWithin(text, pattern, SearchBudget.ofMillis(timeBudgetMillis));
+            if (!result.isComplete()) {
+                algResult.timedOut = true;
+            }
+            return result.getResult();
+        }
+        return algorithm.solveRecorded(text, pattern);
+    }
+
+    /**
+     * The result to check and report: served through the result cache when one is
+     * configured, otherwise the result of the timed runs. Budgeted runs bypass the
+     * cache so that partial results are never memoized.
+     */
+    private static String reportedResult(Solution algorithm, String text, String pattern, String timedResult) {
+        if (resultCache == null || timeBudgetMillis > 0) {
+            return timedResult;
+        }
+        return resultCache.solve(algorithm, text, pattern);
+    }
     
     /**
      * Result of running a single algorithm on a single test
@@ -11,16 +59,21 @@ public class ManualTestRunner {
     static class AlgorithmTestResult {
         String algorithmName;
         String result;
-        long executionTimeNanos;
-        long[] allRunTimes; // Store all 5 run times
+        long executionTimeNanos; // Median of the timed runs
+        long[] allRunTimes; // Every timed run, in order
+        TimingStats stats;
+        long allocatedBytes; // Heap bytes per call (median), or AllocationMeter.UNSUPPORTED
+        OpCounters ops; // Operation counts of one call, or null unless OpCounters.ENABLED
         boolean passed;
         boolean implemented;
+        boolean timedOut; // Some run hit the time budget and returned a partial result
         Exception error;
 
         public AlgorithmTestResult(String algorithmName) {
             this.algorithmName = algorithmName;
             this.implemented = true;
-            this.allRunTimes = new long[5];
+            this.allRunTimes = new long[0];
+            this.allocatedBytes = AllocationMeter.UNSUPPORTED;
         }
     }
     
@@ -76,23 +129,19 @@ public class ManualTestRunner {
                 AlgorithmTestResult algResult = new AlgorithmTestResult(algorithm.getName());
 
                 try {
-                    // Warm up
-                    algorithm.Solve(test.getText(), test.getPattern());
-
-                    // Run 5 times and take average
-                    long totalTime = 0;
-                    String result = null;
-                    for (int run = 0; run < 5; run++) {
-                        long startTime = System.nanoTime();
-                        result = algorithm.Solve(test.getText(), test.getPattern());
-                        long endTime = System.nanoTime();
-                        algResult.allRunTimes[run] = endTime - startTime;
-                        totalTime += algResult.allRunTimes[run];
-                    }
+                    // Warm up, then sample until the median is known to within a few percent
+                    String[] result = new String[1];
+                    algResult.stats = TimingStats.measure(
+                            () -> result[0] = solve(algorithm, test.getText(), test.getPattern(), algResult));
+                    algResult.allRunTimes = algResult.stats.samples();
+                    algResult.allocatedBytes = AllocationMeter.bytesPerCall(
+                            () -> solve(algorithm, test.getText(), test.getPattern(), algResult));
+                    algResult.ops = OpCounters.count(
+                            () -> solve(algorithm, test.getText(), test.getPattern(), algResult));
 
-                    algResult.result = result;
-                    algResult.executionTimeNanos = totalTime / 5; // Average time
-                    algResult.passed = result.equals(test.getExpectedResult());
+                    algResult.result = reportedResult(algorithm, test.getText(), test.getPattern(), result[0]);
+                    algResult.executionTimeNanos = algResult.stats.median();
+                    algResult.passed = !algResult.timedOut && algResult.result.equals(test.getExpectedResult());
 
                 } catch (UnsupportedOperationException e) {
                     algResult.implemented = false;
@@ -110,6 +159,102 @@ public class ManualTestRunner {
         return results;
     }
     
+    // Generated texts at least this long are timed with one run instead of adaptive sampling
+    static final int WORKLOAD_SINGLE_RUN_LENGTH = 1 << 20;
+
+    /**
+     * Run every algorithm on a stream of test cases, printing one row per case as it
+     * completes. Cases are not retained, so generated workloads far larger than the
+     * heap in total can be run as long as each single case fits.
+     * @return Number of cases where some implemented algorithm failed
+     */
+    public static int runWorkload(java.util.stream.Stream<TestCase> tests) {
+        List<Solution> algorithms = getAllSolutions();
+        List<String> algorithmNames = new ArrayList<>();
+        for (Solution algorithm : algorithms) {
+            algorithmNames.add(algorithm.getName());
+        }
+        Map<String, Integer> passedCounts = new LinkedHashMap<>();
+        Map<String, Integer> failedCounts = new LinkedHashMap<>();
+        for (String algName : algorithmNames) {
+            passedCounts.put(algName, 0);
+            failedCounts.put(algName, 0);
+        }
+
+        int nameWidth = 44;
+        int timeWidth = 14;
+        int totalWidth = nameWidth + 24 + algorithmNames.size() * timeWidth;
+        System.out.println("WORKLOAD RESULTS - Execution Time (ms; median for texts under "
+                + WorkloadGenerator.formatSize(WORKLOAD_SINGLE_RUN_LENGTH) + ", single run above)");
+        printSeparator(totalWidth, 0, 0, 0);
+        System.out.print(padRight("Test Case", nameWidth) + padRight("Matches", 12) + padRight("Engines", 12));
+        for (String algName : algorithmNames) {
+            System.out.print(padRight(algName, timeWidth));
+        }
+        System.out.println();
+        printSeparator(totalWidth, 0, 0, 0);
+
+        int[] failedCases = new int[1];
+        int[] caseCount = new int[1];
+        tests.forEach(test -> {
+            caseCount[0]++;
+            String expected = test.getExpectedResult();
+            long matches = expected.isEmpty() ? 0 : expected.chars().filter(c -> c == ',').count() + 1;
+            StringBuilder row = new StringBuilder();
+            int passing = 0;
+            boolean anyFailed = false;
+            for (Solution algorithm : algorithms) {
+                AlgorithmTestResult algResult = new AlgorithmTestResult(algorithm.getName());
+                String display;
+                try {
+                    String[] result = new String[1];
+                    if (test.getText().length() < WORKLOAD_SINGLE_RUN_LENGTH) {
+                        algResult.executionTimeNanos = TimingStats.measure(
+                                () -> result[0] = solve(algorithm, test.getText(), test.getPattern(), algResult)).median();
+                    } else {
+                        long start = System.nanoTime();
+                        result[0] = solve(algorithm, test.getText(), test.getPattern(), algResult);
+                        algResult.executionTimeNanos = System.nanoTime() - start;
+                    }
+                    result[0] = reportedResult(algorithm, test.getText(), test.getPattern(), result[0]);
+                    if (algResult.timedOut) {
+                        display = "⏱ TIMEOUT";
+                    } else if (result[0].equals(expected)) {
+                        display = String.format("%.3f", algResult.executionTimeNanos / 1e6);
+                        passing++;
+                    } else {
+                        display = "✗ FAIL";
+                    }
+                } catch (UnsupportedOperationException e) {
+                    display = "N/A";
+                    algResult.implemented = false;
+                } catch (Exception | OutOfMemoryError e) {
+                    display = "✗ ERROR";
+                }
+                if (display.startsWith("✗")) {
+                    anyFailed = true;
+                    failedCounts.merge(algorithm.getName(), 1, Integer::sum);
+                } else if (algResult.implemented && !algResult.timedOut) {
+                    passedCounts.merge(algorithm.getName(), 1, Integer::sum);
+                }
+                row.append(padRight(display, timeWidth));
+            }
+            if (anyFailed) {
+                failedCases[0]++;
+            }
+            System.out.println(padRight(truncate(test.getName(), nameWidth - 1), nameWidth)
+                    + padRight(Long.toString(matches), 12)
+                    + padRight(passing + "/" + algorithms.size() + " ok", 12) + row);
+        });
+
+        printSeparator(totalWidth, 0, 0, 0);
+        for (String algName : algorithmNames) {
+            System.out.printf("%-22s: %d passed, %d failed%n", algName, passedCounts.get(algName), failedCounts.get(algName));
+        }
+        System.out.printf("%d case(s), %d with failures%n", caseCount[0], failedCases[0]);
+        return failedCases[0];
+    }
+
     /**
      * Print detailed results table with execution times
      */
@@ -131,18 +276,18 @@ public class ManualTestRunner {
 
         // Calculate column widths
         int testNameWidth = 32;
-        int timeWidth = 18;
+        int timeWidth = 24;
         int winnerWidth = 18;
 
         // Print header
         printSeparatorWithWinner(testNameWidth, algorithmNames.size(), timeWidth, winnerWidth);
-        System.out.println(BOLD + CYAN + "DETAILED TEST RESULTS - Execution Time Comparison (Average of 5 runs)" + RESET);
+        System.out.println(BOLD + CYAN + "DETAILED TEST RESULTS - Execution Time Comparison (Median of adaptive runs, heap allocated per call)" + RESET);
         printSeparatorWithWinner(testNameWidth, algorithmNames.size(), timeWidth, winnerWidth);
 
         // Print column headers
         System.out.print(BOLD + padRight("Test Case", testNameWidth));
         for (String algName : algorithmNames) {
-            System.out.print(padRight(algName + " (μs)", timeWidth));
+            System.out.print(padRight(truncate(algName, 12) + " (μs/alloc)", timeWidth));
         }
         System.out.print(padRight("Winner", winnerWidth) + RESET);
         System.out.println();
@@ -153,31 +298,29 @@ public class ManualTestRunner {
             String testName = truncate(testResult.testCase.getName(), testNameWidth - 1);
             System.out.print(padRight(testName, testNameWidth));
 
-            // Find the fastest algorithm for this test
-            String fastestAlg = null;
-            long fastestTime = Long.MAX_VALUE;
-            for (String algName : algorithmNames) {
-                AlgorithmTestResult algResult = testResult.algorithmResults.get(algName);
-                if (algResult.implemented && algResult.passed && algResult.executionTimeNanos < fastestTime) {
-                    fastestTime = algResult.executionTimeNanos;
-                    fastestAlg = algName;
-                }
-            }
+            // Find the fastest algorithm for this test, and whether it is clearly the fastest
+            String fastestAlg = findFastest(testResult);
+            boolean clearWinner = fastestAlg != null && fastestAlg.equals(findClearWinner(testResult));
 
             for (String algName : algorithmNames) {
                 AlgorithmTestResult algResult = testResult.algorithmResults.get(algName);
 
-                // Show time, or FAIL/ERROR/N/A if not passed
+                // Show time, or FAIL/ERROR/TIMEOUT/N/A if not passed
                 String display;
                 if (!algResult.implemented) {
                     display = "N/A";
                 } else if (algResult.error != null) {
                     display = "✗ ERROR";
+                } else if (algResult.timedOut) {
+                    display = "⏱ TIMEOUT";
                 } else if (!algResult.passed) {
                     display = "✗ FAIL";
                 } else {
-                    // Show time for passing tests, highlight if winner
+                    // Show time and allocation for passing tests, highlight if winner
                     String timeStr = String.format("%.3f", algResult.executionTimeNanos / 1000.0);
+                    if (algResult.allocatedBytes != AllocationMeter.UNSUPPORTED) {
+                        timeStr += " / " + AllocationMeter.format(algResult.allocatedBytes);
+                    }
                     if (algName.equals(fastestAlg)) {
                         display = GREEN + timeStr + RESET;
                     } else {
@@ -187,18 +330,122 @@ public class ManualTestRunner {
                 System.out.print(padRight(display, timeWidth));
             }
 
-            // Winner column
-            String winner = fastestAlg != null ? GREEN + "🏆 " + fastestAlg + RESET : "None";
+            // Winner column; "≈" marks a fastest median whose CI overlaps another engine's
+            String winner;
+            if (fastestAlg == null) {
+                winner = "None";
+            } else if (clearWinner) {
+                winner = GREEN + "🏆 " + fastestAlg + RESET;
+            } else {
+                winner = YELLOW + "≈ " + fastestAlg + RESET;
+            }
             System.out.print(padRight(winner, winnerWidth));
             System.out.println();
         }
 
         printSeparatorWithWinner(testNameWidth, algorithmNames.size(), timeWidth, winnerWidth);
+        System.out.println("🏆 = fastest with non-overlapping 95% CIs, ≈ = fastest median but within noise of another engine");
 
         // Print summary statistics
         printSummaryStatistics(results, algorithmNames);
+
+        if (OpCounters.ENABLED) {
+            printOperationCounts(results);
+        }
+    }
+
+    /**
+     * Print the operation counts of one call of every passing algorithm on every test
+     * (only collected when OpCounters.ENABLED). Comparisons per text character above 2
+     * are flagged: no linear-time scan needs more, so it points at degenerate behavior.
+     */
+    public static void printOperationCounts(List<TestExecutionResult> results) {
+        System.out.println("\nOPERATION COUNTS (one call):");
+        printSeparator(130, 0, 0, 0);
+        System.out.printf("%-32s %-22s %12s %9s %10s %9s %10s %10s %10s%n",
+                "Test Case", "Algorithm", "Comparisons", "Cmp/char", "Shifts", "Avg shift",
+                "LPS fallbk", "Hash hits", "Spurious");
+        printSeparator(130, 0, 0, 0);
+        for (TestExecutionResult testResult : results) {
+            int n = Math.max(1, testResult.testCase.getText().length());
+            for (AlgorithmTestResult algResult : testResult.algorithmResults.values()) {
+                OpCounters ops = algResult.ops;
+                if (ops == null || !algResult.passed) {
+                    continue;
+                }
+                double perChar = (double) ops.getComparisons() / n;
+                System.out.printf("%-32s %-22s %12d %8.2f%s %10d %9.2f %10d %10d %10d%n",
+                        truncate(testResult.testCase.getName(), 31),
+                        truncate(algResult.algorithmName, 21),
+                        ops.getComparisons(), perChar, perChar > 2.0 ? "!" : " ",
+                        ops.getShifts(), ops.getAverageShift(), ops.getLpsFallbacks(),
+                        ops.getHashHits(), ops.getSpuriousHits());
+            }
+        }
+        printSeparator(130, 0, 0, 0);
+        System.out.println("! = more than 2 character comparisons per text character");
+        System.out.println("Index engines count only query-time comparisons (SuffixArraySearch); FMIndexSearch and");
+        System.out.println("SuffixAutomatonSearch answer through rank/transition lookups and report no comparisons.");
     }
     
+    /**
+     * Passing algorithm with the lowest median time, or null if none passed
+     */
+    static String findFastest(TestExecutionResult testResult) {
+        String fastestAlg = null;
+        long fastestTime = Long.MAX_VALUE;
+        for (Map.Entry<String, AlgorithmTestResult> entry : testResult.algorithmResults.entrySet()) {
+            AlgorithmTestResult algResult = entry.getValue();
+            if (algResult.implemented && algResult.passed && algResult.executionTimeNanos < fastestTime) {
+                fastestTime = algResult.executionTimeNanos;
+                fastestAlg = entry.getKey();
+            }
+        }
+        return fastestAlg;
+    }
+
+    /**
+     * Passing algorithm whose median CI lies below all others, or null if there is no clear winner
+     */
+    static String findClearWinner(TestExecutionResult testResult) {
+        Map<String, TimingStats> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, AlgorithmTestResult> entry : testResult.algorithmResults.entrySet()) {
+            AlgorithmTestResult algResult = entry.getValue();
+            if (algResult.implemented && algResult.passed && algResult.stats != null) {
+                stats.put(entry.getKey(), algResult.stats);
+            }
+        }
+        return TimingStats.clearWinner(stats);
+    }
+
+    /**
+     * Print the timing distribution of every passing algorithm on every test:
+     * median, p90, p99, coefficient of variation, the median's 95% CI and the sample count.
+     */
+    public static void printTimingDistribution(List<TestExecutionResult> results) {
+        System.out.println("\nTIMING DISTRIBUTION (μs):");
+        printSeparator(120, 0, 0, 0);
+        System.out.printf("%-32s %-22s %10s %10s %10s %7s %23s %8s%n",
+                "Test Case", "Algorithm", "Median", "p90", "p99", "CV", "95% CI of median", "Samples");
+        printSeparator(120, 0, 0, 0);
+        for (TestExecutionResult testResult : results) {
+            for (AlgorithmTestResult algResult : testResult.algorithmResults.values()) {
+                TimingStats stats = algResult.stats;
+                if (stats == null || !algResult.passed) {
+                    continue;
+                }
+                System.out.printf("%-32s %-22s %10.3f %10.3f %10.3f %6.1f%% %10.3f - %10.3f %7d%s%n",
+                        truncate(testResult.testCase.getName(), 31),
+                        truncate(algResult.algorithmName, 21),
+                        stats.median() / 1000.0, stats.p90() / 1000.0, stats.p99() / 1000.0,
+                        stats.cv() * 100.0, stats.ciLow() / 1000.0, stats.ciHigh() / 1000.0,
+                        stats.sampleCount(), stats.isConverged() ? "" : "*");
+            }
+        }
+        printSeparator(120, 0, 0, 0);
+        System.out.println("* = stopped at the time cap before reaching the precision target");
+    }
+
     /**
      * Print summary statistics for all tests
      */
@@ -214,6 +461,8 @@ public class ManualTestRunner {
             int implementedCount = 0;
             long minTime = Long.MAX_VALUE;
             long maxTime = Long.MIN_VALUE;
+            long totalAllocated = 0;
+            int allocatedCount = 0;
             
             for (TestExecutionResult testResult : results) {
                 AlgorithmTestResult algResult = testResult.algorithmResults.get(algName);
@@ -228,6 +477,10 @@ public class ManualTestRunner {
                     implementedCount++;
                     minTime = Math.min(minTime, algResult.executionTimeNanos);
                     maxTime = Math.max(maxTime, algResult.executionTimeNanos);
+                    if (algResult.allocatedBytes != AllocationMeter.UNSUPPORTED) {
+                        totalAllocated += algResult.allocatedBytes;
+                        allocatedCount++;
+                    }
                 } else {
                     failed++;
                 }
@@ -246,11 +499,29 @@ public class ManualTestRunner {
                 double maxTimeUs = maxTime / 1000.0;
                 System.out.printf(" | Avg: %.3f μs, Min: %.3f μs, Max: %.3f μs", avgTime, minTimeUs, maxTimeUs);
             }
+            if (allocatedCount > 0) {
+                System.out.printf(" | Avg alloc: %s", AllocationMeter.format(totalAllocated / allocatedCount));
+            }
             
             System.out.println();
         }
         
         printSeparator(100, 0, 0, 0);
+
+        if (resultCache != null) {
+            printResultCacheStatistics();
+        }
+    }
+
+    /**
+     * Print result cache hit rate and occupancy
+     */
+    private static void printResultCacheStatistics() {
+        System.out.println("\nRESULT CACHE:");
+        System.out.printf("Hits: %d, Misses: %d, Hit rate: %.1f%%, Evictions: %d, Entries: %d (%.1f KB)%n",
+                resultCache.getHits(), resultCache.getMisses(), resultCache.getHitRate() * 100.0,
+                resultCache.getEvictions(), resultCache.size(), resultCache.getUsedBytes() / 1024.0);
+        printSeparator(100, 0, 0, 0);
     }
     
     /**
@@ -266,20 +537,13 @@ public class ManualTestRunner {
         printSeparator(80, 0, 0, 0);
         
         for (TestExecutionResult testResult : results) {
-            String fastestAlg = null;
-            long fastestTime = Long.MAX_VALUE;
-            
-            for (Map.Entry<String, AlgorithmTestResult> entry : testResult.algorithmResults.entrySet()) {
-                AlgorithmTestResult algResult = entry.getValue();
-                if (algResult.implemented && algResult.passed && algResult.executionTimeNanos < fastestTime) {
-                    fastestTime = algResult.executionTimeNanos;
-                    fastestAlg = entry.getKey();
-                }
-            }
+            String fastestAlg = findFastest(testResult);
             
             String testName = truncate(testResult.testCase.getName(), 29);
             if (fastestAlg != null) {
-                System.out.printf("%-30s %-20s %.3f\n", testName, fastestAlg, fastestTime / 1000.0);
+                long fastestTime = testResult.algorithmResults.get(fastestAlg).executionTimeNanos;
+                String marker = fastestAlg.equals(findClearWinner(testResult)) ? "" : " (within noise)";
+                System.out.printf("%-30s %-20s %.3f%s\n", testName, fastestAlg, fastestTime / 1000.0, marker);
             } else {
                 System.out.printf("%-30s %-20s %s\n", testName, "None", "-");
             }
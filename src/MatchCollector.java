@@ -0,0 +1,221 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Collects match positions with a bounded memory footprint.
+ *
+ * Positions are kept in a primitive int buffer of at most memoryCap entries. When
+ * the buffer fills up it is written to a temporary file as one block of
+ * delta+varint bytes ([count][first][gap]...[gap]) and reused, so a result of any
+ * size costs memoryCap ints of heap plus roughly one byte per match on disk for
+ * dense results. iterator() streams the spilled blocks and then the buffered tail.
+ *
+ * Engines feed it through Solution.solveInto(). Positions must arrive in strictly
+ * ascending order, which every engine guarantees. A collector is single-threaded;
+ * close() deletes the spill file.
+ */
+public final class MatchCollector implements IntConsumer, AutoCloseable {
+    public static final int DEFAULT_MEMORY_CAP = 1 << 20;
+
+    private final int memoryCap;
+    private int[] buffer;
+    private int buffered;
+    private long size;
+    private int last = -1;
+
+    private Path spillFile;
+    private OutputStream spill;
+    private long spilledBytes;
+
+    public MatchCollector() {
+        this(DEFAULT_MEMORY_CAP);
+    }
+
+    /**
+     * @param memoryCap Maximum number of positions held in memory before spilling
+     */
+    public MatchCollector(int memoryCap) {
+        if (memoryCap < 1) {
+            throw new IllegalArgumentException("memoryCap must be positive: " + memoryCap);
+        }
+        this.memoryCap = memoryCap;
+        this.buffer = new int[Math.min(16, memoryCap)];
+    }
+
+    /**
+     * Add the next match position.
+     * @throws IllegalArgumentException if index is not greater than the previous one
+     * @throws UncheckedIOException if spilling to disk fails
+     */
+    @Override
+    public void accept(int index) {
+        if (index <= last) {
+            throw new IllegalArgumentException("Positions must be strictly ascending: " + index + " after " + last);
+        }
+        if (buffered == buffer.length) {
+            if (buffered == memoryCap) {
+                spillBuffer();
+            } else {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(memoryCap, 2L * buffer.length));
+            }
+        }
+        buffer[buffered++] = index;
+        last = index;
+        size++;
+    }
+
+    /**
+     * @return Number of positions collected
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * @return Bytes written to the spill file so far
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * Stream every position in ascending order. Do not add positions while iterating.
+     * The spill file is open until the iterator has returned its last spilled position.
+     * @throws UncheckedIOException if the spill file cannot be read
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        InputStream in = null;
+        if (spill != null) {
+            try {
+                spill.flush();
+                in = new BufferedInputStream(Files.newInputStream(spillFile), 1 << 16);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new Iter(in, size - buffered, buffer, buffered);
+    }
+
+    /**
+     * @return All positions in an array
+     * @throws IllegalStateException if there are too many for one array
+     */
+    public int[] toArray() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(size + " positions do not fit in an array; use iterator()");
+        }
+        int[] result = new int[(int) size];
+        PrimitiveIterator.OfInt it = iterator();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = it.nextInt();
+        }
+        return result;
+    }
+
+    /**
+     * Delete the spill file, if any. The collector is empty afterwards.
+     */
+    @Override
+    public void close() {
+        buffered = 0;
+        size = 0;
+        last = -1;
+        spilledBytes = 0;
+        if (spill != null) {
+            try {
+                spill.close();
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                spill = null;
+                spillFile = null;
+            }
+        }
+    }
+
+    private void spillBuffer() {
+        try {
+            if (spill == null) {
+                spillFile = Files.createTempFile("matches", ".bin");
+                spillFile.toFile().deleteOnExit();
+                spill = new BufferedOutputStream(Files.newOutputStream(spillFile), 1 << 16);
+            }
+            Varint.write(spill, buffered);
+            Varint.write(spill, buffer[0]);
+            spilledBytes += Varint.size(buffered) + Varint.size(buffer[0]);
+            for (int i = 1; i < buffered; i++) {
+                int gap = buffer[i] - buffer[i - 1];
+                Varint.write(spill, gap);
+                spilledBytes += Varint.size(gap);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill matches to " + spillFile, e);
+        }
+        buffered = 0;
+    }
+
+    /**
+     * Decodes the spilled blocks one position at a time, then walks the in-memory tail.
+     */
+    private static final class Iter implements PrimitiveIterator.OfInt {
+        private final InputStream in;
+        private long spilledRemaining;
+        private int blockRemaining;
+        private int current;
+        private final int[] tail;
+        private final int tailLength;
+        private int tailPos;
+
+        Iter(InputStream in, long spilledCount, int[] tail, int tailLength) {
+            this.in = in;
+            this.spilledRemaining = spilledCount;
+            this.tail = tail;
+            this.tailLength = tailLength;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return spilledRemaining > 0 || tailPos < tailLength;
+        }
+
+        @Override
+        public int nextInt() {
+            if (spilledRemaining == 0) {
+                if (tailPos == tailLength) {
+                    throw new NoSuchElementException();
+                }
+                return tail[tailPos++];
+            }
+            try {
+                if (blockRemaining == 0) {
+                    blockRemaining = Varint.read(in);
+                    current = Varint.read(in); // First position of a block is stored as is
+                } else {
+                    current += Varint.read(in);
+                }
+                blockRemaining--;
+                if (--spilledRemaining == 0) {
+                    in.close();
+                }
+                return current;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
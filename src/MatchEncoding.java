@@ -0,0 +1,264 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.Supplier;
+
+/**
+ * Compact binary encodings of a match result, as an alternative to the
+ * comma-separated String returned by Solve.
+ *
+ * Two formats, chosen per result by whichever is smaller:
+ * <ul>
+ *   <li>DELTA_VARINT: [tag][count][first][gap]...[gap], every number a Varint.
+ *       Sparse results cost about one to three bytes per match.</li>
+ *   <li>BITMAP: [tag][count][first][span][bits], one bit per position from first
+ *       to first + span - 1. Dense results (such as a run of identical characters)
+ *       cost one bit per text position.</li>
+ * </ul>
+ * The empty result is a single DELTA_VARINT header with count 0. Encoded results
+ * can be decoded with iterator() without building an int[] or a String, and
+ * compared against an expected String result with equalsResult().
+ */
+public final class MatchEncoding {
+    public static final byte DELTA_VARINT = 1;
+    public static final byte BITMAP = 2;
+
+    private MatchEncoding() {
+    }
+
+    /**
+     * @param positions Match positions in strictly ascending order
+     * @return The smaller of the two encodings
+     */
+    public static byte[] encode(int[] positions) {
+        return encode(() -> new PrimitiveIterator.OfInt() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < positions.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (i == positions.length) {
+                    throw new NoSuchElementException();
+                }
+                return positions[i++];
+            }
+        });
+    }
+
+    /**
+     * Encode a collected result, reading spilled positions back from disk as needed.
+     * @param matches The collected positions
+     * @return The smaller of the two encodings
+     */
+    public static byte[] encode(MatchCollector matches) {
+        return encode(matches::iterator);
+    }
+
+    /**
+     * Encode the comma-separated output of Solve.
+     */
+    public static byte[] fromResultString(String result) {
+        return encode(ResultCache.parseIndices(result));
+    }
+
+    /**
+     * Two passes over the positions: one to size both formats, one to write the smaller.
+     */
+    private static byte[] encode(Supplier<PrimitiveIterator.OfInt> positions) {
+        int count = 0;
+        int first = 0;
+        int last = 0;
+        long deltaPayload = 0;
+        PrimitiveIterator.OfInt it = positions.get();
+        while (it.hasNext()) {
+            int p = it.nextInt();
+            if (count == 0) {
+                first = p;
+                deltaPayload += Varint.size(p);
+            } else {
+                if (p <= last) {
+                    throw new IllegalArgumentException("Positions must be strictly ascending: " + p + " after " + last);
+                }
+                deltaPayload += Varint.size(p - last);
+            }
+            last = p;
+            count++;
+        }
+
+        int span = count == 0 ? 0 : last - first + 1;
+        long deltaSize = 1 + Varint.size(count) + deltaPayload;
+        long bitmapSize = 1 + Varint.size(count) + Varint.size(first) + Varint.size(span) + (span + 7L) / 8;
+        boolean bitmap = count > 0 && bitmapSize < deltaSize;
+        long size = bitmap ? bitmapSize : deltaSize;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Encoded result of " + size + " bytes does not fit in an array");
+        }
+
+        byte[] out = new byte[(int) size];
+        out[0] = bitmap ? BITMAP : DELTA_VARINT;
+        int pos = Varint.put(out, 1, count);
+        it = positions.get();
+        if (bitmap) {
+            pos = Varint.put(out, pos, first);
+            pos = Varint.put(out, pos, span);
+            while (it.hasNext()) {
+                int bit = it.nextInt() - first;
+                out[pos + (bit >>> 3)] |= (byte) (1 << (bit & 7));
+            }
+        } else {
+            int previous = 0;
+            for (int i = 0; it.hasNext(); i++) {
+                int p = it.nextInt();
+                pos = Varint.put(out, pos, i == 0 ? p : p - previous);
+                previous = p;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return DELTA_VARINT or BITMAP
+     */
+    public static byte format(byte[] encoded) {
+        return encoded[0];
+    }
+
+    /**
+     * @return Number of positions in the encoded result
+     */
+    public static int count(byte[] encoded) {
+        return new Decoder(encoded).remaining;
+    }
+
+    /**
+     * Stream the positions in ascending order without materializing them.
+     * @throws IllegalArgumentException if the format tag is unknown
+     */
+    public static PrimitiveIterator.OfInt iterator(byte[] encoded) {
+        return new Decoder(encoded);
+    }
+
+    public static int[] decode(byte[] encoded) {
+        Decoder decoder = new Decoder(encoded);
+        int[] positions = new int[decoder.remaining];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = decoder.nextInt();
+        }
+        return positions;
+    }
+
+    /**
+     * @return The comma-separated format returned by Solve
+     */
+    public static String toResultString(byte[] encoded) {
+        StringBuilder sb = new StringBuilder();
+        PrimitiveIterator.OfInt it = iterator(encoded);
+        while (it.hasNext()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(it.nextInt());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compare an encoded result with a comma-separated one, number by number,
+     * without formatting or allocating.
+     * @return true if both hold the same positions
+     */
+    public static boolean equalsResult(byte[] encoded, String result) {
+        PrimitiveIterator.OfInt it = iterator(encoded);
+        if (result.isEmpty()) {
+            return !it.hasNext();
+        }
+        int value = 0;
+        boolean digits = false;
+        for (int i = 0; i < result.length(); i++) {
+            char c = result.charAt(i);
+            if (c == ',') {
+                if (!digits || !it.hasNext() || it.nextInt() != value) {
+                    return false;
+                }
+                value = 0;
+                digits = false;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits = true;
+            } else {
+                return false;
+            }
+        }
+        return digits && it.hasNext() && it.nextInt() == value && !it.hasNext();
+    }
+
+    private static final class Decoder implements PrimitiveIterator.OfInt {
+        private final byte[] buf;
+        private final boolean bitmap;
+        private int pos;
+        private int remaining;
+        private int current;
+        private boolean started;
+        private int first;
+
+        Decoder(byte[] encoded) {
+            this.buf = encoded;
+            if (encoded[0] != DELTA_VARINT && encoded[0] != BITMAP) {
+                throw new IllegalArgumentException("Unknown match encoding " + encoded[0]);
+            }
+            this.bitmap = encoded[0] == BITMAP;
+            this.pos = 1;
+            this.remaining = readVarint();
+            if (bitmap && remaining > 0) {
+                first = readVarint();
+                readVarint(); // Span; the bits follow and the count says when to stop
+                current = -1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            if (bitmap) {
+                // Find the next set bit after current
+                int bit = current + 1;
+                while ((buf[pos + (bit >>> 3)] & (1 << (bit & 7))) == 0) {
+                    bit++;
+                    if ((bit & 7) == 0) {
+                        while (buf[pos + (bit >>> 3)] == 0) {
+                            bit += 8; // Skip empty bytes
+                        }
+                    }
+                }
+                current = bit;
+                return first + bit;
+            }
+            int value = readVarint();
+            current = started ? current + value : value;
+            started = true;
+            return current;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buf[pos++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Hardware-independent operation counts of the scanning engines: character
+ * comparisons, pattern shifts (and their total distance), KMP failure-link
+ * fallbacks, and Rabin-Karp hash hits versus spurious hits.
+ *
+ * Counting is off unless the JVM starts with -Dopcounts=true (ManualTest --ops
+ * sets the property before any engine runs). ENABLED is a static final, so when it
+ * is false the JIT folds every "if (OpCounters.ENABLED)" block away and the engines
+ * run exactly as uninstrumented code. When it is on, each thread counts into its
+ * own instance; an engine fetches it once per search with current().
+ */
+public final class OpCounters {
+    /** System property that turns counting on */
+    public static final String PROPERTY = "opcounts";
+
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    private static final ThreadLocal<OpCounters> CURRENT = ThreadLocal.withInitial(OpCounters::new);
+
+    long comparisons;    // Text character compared against a pattern character
+    long shifts;         // Pattern alignment moved forward
+    long shiftDistance;  // Sum of the distances of those moves
+    long lpsFallbacks;   // KMP fell back along the LPS (failure) links
+    long hashHits;       // Rabin-Karp window hash equal to the pattern hash
+    long spuriousHits;   // ... that verification then rejected
+
+    /**
+     * @return This thread's counters. Only call when ENABLED.
+     */
+    static OpCounters current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Zero this thread's counters, run the operation once and return what it counted.
+     * @return The counts, or null when counting is disabled
+     */
+    public static OpCounters count(Runnable action) {
+        if (!ENABLED) {
+            return null;
+        }
+        OpCounters counters = current();
+        counters.reset();
+        action.run();
+        return counters.copy();
+    }
+
+    void reset() {
+        comparisons = 0;
+        shifts = 0;
+        shiftDistance = 0;
+        lpsFallbacks = 0;
+        hashHits = 0;
+        spuriousHits = 0;
+    }
+
+    OpCounters copy() {
+        OpCounters copy = new OpCounters();
+        copy.comparisons = comparisons;
+        copy.shifts = shifts;
+        copy.shiftDistance = shiftDistance;
+        copy.lpsFallbacks = lpsFallbacks;
+        copy.hashHits = hashHits;
+        copy.spuriousHits = spuriousHits;
+        return copy;
+    }
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public long getShifts() {
+        return shifts;
+    }
+
+    /**
+     * @return Mean distance of a shift, or 0 if there were none
+     */
+    public double getAverageShift() {
+        return shifts == 0 ? 0.0 : (double) shiftDistance / shifts;
+    }
+
+    public long getLpsFallbacks() {
+        return lpsFallbacks;
+    }
+
+    public long getHashHits() {
+        return hashHits;
+    }
+
+    public long getSpuriousHits() {
+        return spuriousHits;
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Features of a pattern, computed once in a single pass and shared by pre-analysis,
+ * GoCrazy and the engines.
+ *
+ * The pass builds the KMP LPS array and the character histogram together, and
+ * derives the period, repeat score, alphabet size, rarest character and a binary
+ * flag from them. Profiles are cached in PatternTableCache, so KMP searches with
+ * the very LPS array (and period) that pre-analysis looked at, and Boyer-Moore
+ * probes the rarest character first. A profile is immutable; lps() is shared and
+ * must not be modified.
+ */
+public final class PatternProfile {
+    private final int length;
+    private final int[] lps;
+    private final int longestBorder;
+    private final int[] latinCounts;              // Counts for chars < 256
+    private final Map<Character, Integer> otherCounts;  // Counts for chars >= 256, null if none
+    private final int alphabetSize;
+    private final char rarestChar;
+    private final int rarestCharIndex;
+    private final boolean binary;
+
+    PatternProfile(String pattern) {
+        int m = pattern.length();
+        this.length = m;
+        this.lps = new int[m];
+        this.latinCounts = new int[256];
+        Map<Character, Integer> others = null;
+        int distinct = 0;
+        int controlChars = 0;
+        int border = 0;
+
+        int len = 0;
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+
+            // Histogram
+            if (c < 256) {
+                if (latinCounts[c]++ == 0) {
+                    distinct++;
+                }
+                if (c < 32 && c != '\t' && c != '\n' && c != '\r') {
+                    controlChars++;
+                }
+            } else {
+                if (others == null) {
+                    others = new HashMap<>();
+                }
+                if (others.merge(c, 1, Integer::sum) == 1) {
+                    distinct++;
+                }
+            }
+
+            // LPS (Longest Proper Prefix which is also Suffix)
+            if (i > 0) {
+                while (len > 0 && c != pattern.charAt(len)) {
+                    len = lps[len - 1];
+                }
+                if (c == pattern.charAt(len)) {
+                    len++;
+                }
+                lps[i] = len;
+                border = Math.max(border, len);
+            }
+        }
+
+        this.otherCounts = others;
+        this.alphabetSize = distinct;
+        this.longestBorder = border;
+        this.binary = m > 0 && (double) controlChars / m > 0.1;
+
+        // Rarest character; ties go to the one occurring furthest right
+        char rarest = 0;
+        int rarestIndex = -1;
+        int rarestCount = Integer.MAX_VALUE;
+        for (int i = m - 1; i >= 0; i--) {
+            char c = pattern.charAt(i);
+            int count = count(c);
+            if (count < rarestCount) {
+                rarest = c;
+                rarestIndex = i;
+                rarestCount = count;
+            }
+        }
+        this.rarestChar = rarest;
+        this.rarestCharIndex = rarestIndex;
+    }
+
+    /**
+     * Get the shared profile for a pattern, computing it on first use.
+     * @param pattern The pattern to profile
+     * @return The cached profile
+     */
+    public static PatternProfile of(String pattern) {
+        return PatternTableCache.shared().get("Profile", pattern, PatternProfile::new, PatternProfile::sizeInBytes);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return The KMP LPS array (shared, do not modify)
+     */
+    public int[] lps() {
+        return lps;
+    }
+
+    /**
+     * @return Smallest period p such that pattern[i] == pattern[i + p], or 0 for the empty pattern
+     */
+    public int period() {
+        return length == 0 ? 0 : length - lps[length - 1];
+    }
+
+    /**
+     * @return Largest LPS value anywhere in the pattern
+     */
+    public int longestBorder() {
+        return longestBorder;
+    }
+
+    /**
+     * Ratio of the longest border to the pattern length. High scores indicate periodicity.
+     * @return Score in [0, 1)
+     */
+    public double repeatScore() {
+        return length == 0 ? 0.0 : (double) longestBorder / length;
+    }
+
+    /**
+     * @return Number of distinct characters in the pattern
+     */
+    public int alphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * @return Number of times c occurs in the pattern
+     */
+    public int count(char c) {
+        if (c < 256) {
+            return latinCounts[c];
+        }
+        return otherCounts == null ? 0 : otherCounts.getOrDefault(c, 0);
+    }
+
+    /**
+     * @return The least frequent character of the pattern (undefined for the empty pattern)
+     */
+    public char rarestChar() {
+        return rarestChar;
+    }
+
+    /**
+     * @return Rightmost index of rarestChar() in the pattern, or -1 for the empty pattern
+     */
+    public int rarestCharIndex() {
+        return rarestCharIndex;
+    }
+
+    /**
+     * @return true if more than 10% of the pattern is non-whitespace control characters
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    long sizeInBytes() {
+        long bytes = 64 + 16 + 4L * lps.length + 16 + 4L * latinCounts.length;
+        if (otherCounts != null) {
+            bytes += 48 + 64L * otherCounts.size();
+        }
+        return bytes;
+    }
+}
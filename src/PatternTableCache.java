@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded LRU cache of preprocessed pattern tables (LPS arrays, Boyer-Moore shift
+ * tables, ...), shared by all engines and threads.
+ *
+ * Entries are keyed by (table kind, pattern) and charged against a memory budget
+ * using the size the caller reports for each table. Lookups take no lock: the table
+ * lives in a ConcurrentHashMap and a hit only stamps its entry with the current
+ * value of a clock that ticks once per insertion. When an insertion takes the cache
+ * over budget, one thread evicts the entries with the oldest stamps down to
+ * EVICT_TO of the budget, so the sort behind it is paid once per many insertions.
+ * Cached tables are shared, so callers must treat them as read-only.
+ */
+public class PatternTableCache {
+    public static final long DEFAULT_BUDGET_BYTES = 16L * 1024 * 1024;
+
+    /** Fraction of the budget an eviction pass trims the cache down to */
+    static final double EVICT_TO = 0.75;
+
+    private static final PatternTableCache SHARED = new PatternTableCache(DEFAULT_BUDGET_BYTES);
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+    private final Object evictLock = new Object();
+    private volatile long budgetBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PatternTableCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return The process-wide cache the engines consult
+     */
+    public static PatternTableCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Return the cached table for (kind, pattern), compiling and caching it on a miss.
+     * The compiler runs outside any lock, so two threads missing on the same key may
+     * both compile; the first one to insert wins.
+     *
+     * @param kind Table kind, e.g. "LPS" or "BoyerMoore"
+     * @param pattern The pattern the table is built from
+     * @param compiler Builds the table from the pattern
+     * @param sizer Reports the approximate size of a table in bytes
+     * @return The cached or freshly compiled table
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, String pattern, Function<String, T> compiler, ToLongFunction<T> sizer) {
+        Key key = new Key(kind, pattern);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.touch(clock.get());
+            hits.increment();
+            return (T) entry.table;
+        }
+        misses.increment();
+
+        T table = compiler.apply(pattern);
+        long bytes = sizer.applyAsLong(table) + 48 + 2L * pattern.length();
+        if (bytes > budgetBytes) {
+            return table; // Too large to ever fit; do not flush the cache for it
+        }
+        Entry existing = entries.putIfAbsent(key, new Entry(table, bytes, clock.incrementAndGet()));
+        if (existing != null) {
+            return (T) existing.table;
+        }
+        if (usedBytes.addAndGet(bytes) > budgetBytes) {
+            evictToBudget();
+        }
+        return table;
+    }
+
+    /**
+     * Change the memory budget, evicting entries if the cache is now over it.
+     * @param budgetBytes New budget in bytes
+     */
+    public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evictToBudget();
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Drop every entry and reset the counters.
+     */
+    public void clear() {
+        synchronized (evictLock) {
+            for (Key key : entries.keySet()) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    usedBytes.addAndGet(-entry.bytes);
+                }
+            }
+            hits.reset();
+            misses.reset();
+            evictions.reset();
+        }
+    }
+
+    /**
+     * Evict least recently stamped entries until the cache is down to EVICT_TO of
+     * the budget. Runs on one thread at a time; lookups and insertions go on meanwhile.
+     */
+    private void evictToBudget() {
+        synchronized (evictLock) {
+            long budget = budgetBytes;
+            if (usedBytes.get() <= budget) {
+                return; // Another thread already made room
+            }
+            // Sort on a snapshot of the stamps: hits keep changing them meanwhile
+            List<Map.Entry<Key, Entry>> items = new ArrayList<>(entries.entrySet());
+            long[] stamps = new long[items.size()];
+            Integer[] byAge = new Integer[items.size()];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = items.get(i).getValue().lastUsed;
+                byAge[i] = i;
+            }
+            Arrays.sort(byAge, Comparator.comparingLong(i -> stamps[i]));
+            long target = (long) (budget * EVICT_TO);
+            for (int i : byAge) {
+                if (usedBytes.get() <= target) {
+                    break;
+                }
+                Map.Entry<Key, Entry> item = items.get(i);
+                if (entries.remove(item.getKey(), item.getValue())) {
+                    usedBytes.addAndGet(-item.getValue().bytes);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        final String kind;
+        final String pattern;
+
+        Key(String kind, String pattern) {
+            this.kind = kind;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kind.equals(other.kind) && pattern.equals(other.pattern);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + pattern.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final Object table;
+        final long bytes;
+        volatile long lastUsed; // Clock value at the last hit
+
+        Entry(Object table, long bytes, long lastUsed) {
+            this.table = table;
+            this.bytes = bytes;
+            this.lastUsed = lastUsed;
+        }
+
+        void touch(long now) {
+            if (lastUsed != now) { // Skip the write, and the cache-line transfer, on repeated hits
+                lastUsed = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,567 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Persisted per-(test, algorithm) performance results for regression checks.
+ *
+ * check() flags a pair whose median time, after dividing out the run's overall drift,
+ * is past its envelope (slowest run median plus the threshold) by more than the widest
+ * run-to-run jump the baseline has recorded, or past it while its whole algorithm is
+ * significantly slower (a binomial test per algorithm, Holm-corrected). Allocations and
+ * operation counts are deterministic and checked against the threshold alone. merge()
+ * adds runs; each one widens the envelope. Baselines only compare on the machine that wrote them.
+ */
+public class PerformanceBaseline {
+    public static final double DEFAULT_THRESHOLD = 0.10;
+
+    static final int MAX_STORED_SAMPLES = 200;
+    static final double ALPHA = 0.001;
+    static final long ALLOCATION_SLACK_BYTES = 64;
+    // Run-to-run jump assumed when no pair has more than one run to measure it
+    static final double SINGLE_RUN_JUMP = 3.0;
+
+    private final Map<String, Entry> entries;
+
+    PerformanceBaseline(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Results of one (test, algorithm) pair
+     */
+    static final class Entry {
+        final String test;
+        final String algorithm;
+        final boolean passed;
+        final long[] samples;      // Sorted timing samples in ns
+        final long[] runMedians;   // Median time of each run merged into this entry
+        final long allocatedBytes; // AllocationMeter.UNSUPPORTED if not measured
+        final long[] ops;          // comparisons, shifts, LPS fallbacks, hash hits, spurious hits; or null
+
+        Entry(String test, String algorithm, boolean passed, long[] samples, long[] runMedians,
+              long allocatedBytes, long[] ops) {
+            this.test = test;
+            this.algorithm = algorithm;
+            this.passed = passed;
+            this.samples = samples;
+            this.runMedians = runMedians;
+            this.allocatedBytes = allocatedBytes;
+            this.ops = ops;
+        }
+
+        long median() {
+            return samples.length == 0 ? 0 : samples[samples.length / 2];
+        }
+
+        long slowestRunMedian() {
+            long slowest = 0;
+            for (long m : runMedians) {
+                slowest = Math.max(slowest, m);
+            }
+            return slowest;
+        }
+
+        /**
+         * @return Slowest minus fastest run median (0 for a single run)
+         */
+        long runMedianSpread() {
+            long fastest = Long.MAX_VALUE;
+            for (long m : runMedians) {
+                fastest = Math.min(fastest, m);
+            }
+            return runMedians.length == 0 ? 0 : slowestRunMedian() - fastest;
+        }
+
+        /**
+         * Slowest median a new run may have (after drift) without counting as slower:
+         * the slowest run median grown by the threshold, plus the run-to-run spread
+         */
+        double timeBound(double threshold) {
+            return slowestRunMedian() * (1.0 + threshold) + runMedianSpread();
+        }
+
+        /**
+         * Slowest median a new run may have (after drift) before the pair regresses on
+         * its own: the slowest run median grown by the threshold and by the jump
+         */
+        double pairBound(double threshold, double jump) {
+            return slowestRunMedian() * (1.0 + threshold) * jump;
+        }
+    }
+
+    static final String[] OP_NAMES = {"comparisons", "shifts", "lpsFallbacks", "hashHits", "spuriousHits"};
+
+    /**
+     * One metric of one pair that got worse
+     */
+    public static final class Regression {
+        final String test;
+        final String algorithm;
+        final String metric;
+        final String baseline;
+        final String current;
+        final String detail;
+
+        Regression(String test, String algorithm, String metric, String baseline, String current, String detail) {
+            this.test = test;
+            this.algorithm = algorithm;
+            this.metric = metric;
+            this.baseline = baseline;
+            this.current = current;
+            this.detail = detail;
+        }
+    }
+
+    /**
+     * Baseline of the results of a ManualTestRunner run.
+     */
+    static PerformanceBaseline capture(List<ManualTestRunner.TestExecutionResult> results) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (ManualTestRunner.TestExecutionResult testResult : results) {
+            String test = testResult.testCase.getName();
+            for (ManualTestRunner.AlgorithmTestResult algResult : testResult.algorithmResults.values()) {
+                if (!algResult.implemented) {
+                    continue;
+                }
+                long[] samples = algResult.allRunTimes.clone();
+                Arrays.sort(samples);
+                long[] ops = null;
+                if (algResult.ops != null) {
+                    OpCounters c = algResult.ops;
+                    ops = new long[] {c.getComparisons(), c.getShifts(), c.getLpsFallbacks(),
+                            c.getHashHits(), c.getSpuriousHits()};
+                }
+                long median = samples.length == 0 ? 0 : samples[samples.length / 2];
+                entries.put(key(test, algResult.algorithmName), new Entry(test, algResult.algorithmName,
+                        algResult.passed, samples, new long[] {median}, algResult.allocatedBytes, ops));
+            }
+        }
+        return new PerformanceBaseline(entries);
+    }
+
+    private static String key(String test, String algorithm) {
+        return test + "|" + algorithm;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Most runs merged into any one entry
+     */
+    public int runs() {
+        int runs = 0;
+        for (Entry entry : entries.values()) {
+            runs = Math.max(runs, entry.runMedians.length);
+        }
+        return runs;
+    }
+
+    /**
+     * Widest ratio between the slowest and fastest run median of any one pair: how far
+     * a pair has been seen to move between runs with nothing changed. SINGLE_RUN_JUMP
+     * if no pair has two runs.
+     */
+    public double runJump() {
+        double jump = 0;
+        for (Entry entry : entries.values()) {
+            long fastest = entry.slowestRunMedian() - entry.runMedianSpread();
+            if (entry.passed && entry.runMedians.length > 1 && fastest > 0) {
+                jump = Math.max(jump, (double) entry.slowestRunMedian() / fastest);
+            }
+        }
+        return jump == 0 ? SINGLE_RUN_JUMP : jump;
+    }
+
+    /**
+     * Add a new run to this baseline. Pairs only in the new run are added; pairs
+     * only in this baseline are kept. For pairs in both, the samples are pooled,
+     * the run medians appended, and the correctness, allocation and operation counts
+     * of the new run replace the old ones.
+     * @return The merged baseline
+     */
+    public PerformanceBaseline merge(PerformanceBaseline run) {
+        Map<String, Entry> merged = new LinkedHashMap<>(entries);
+        for (Map.Entry<String, Entry> item : run.entries.entrySet()) {
+            Entry now = item.getValue();
+            Entry old = merged.get(item.getKey());
+            if (old == null) {
+                merged.put(item.getKey(), now);
+                continue;
+            }
+            long[] samples = new long[old.samples.length + now.samples.length];
+            System.arraycopy(old.samples, 0, samples, 0, old.samples.length);
+            System.arraycopy(now.samples, 0, samples, old.samples.length, now.samples.length);
+            Arrays.sort(samples);
+            long[] runMedians = Arrays.copyOf(old.runMedians, old.runMedians.length + now.runMedians.length);
+            System.arraycopy(now.runMedians, 0, runMedians, old.runMedians.length, now.runMedians.length);
+            merged.put(item.getKey(), new Entry(now.test, now.algorithm, now.passed, samples, runMedians,
+                    now.allocatedBytes, now.ops));
+        }
+        return new PerformanceBaseline(merged);
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Write the baseline as a properties file.
+     */
+    public void save(Path file) throws IOException {
+        Properties props = new Properties();
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            String prefix = item.getKey() + ".";
+            Entry entry = item.getValue();
+            props.setProperty(prefix + "passed", Boolean.toString(entry.passed));
+            props.setProperty(prefix + "samples", join(quantiles(entry.samples, MAX_STORED_SAMPLES)));
+            props.setProperty(prefix + "runMedians", join(entry.runMedians));
+            props.setProperty(prefix + "allocatedBytes", Long.toString(entry.allocatedBytes));
+            if (entry.ops != null) {
+                props.setProperty(prefix + "ops", join(entry.ops));
+            }
+        }
+        try (Writer out = Files.newBufferedWriter(file)) {
+            props.store(out, "String matching performance baseline (test|algorithm -> samples in ns, bytes, ops)");
+        }
+    }
+
+    /**
+     * Read a baseline written by save().
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static PerformanceBaseline load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file)) {
+            props.load(in);
+        }
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try {
+            for (String name : new TreeSet<>(props.stringPropertyNames())) {
+                if (!name.endsWith(".passed")) {
+                    continue;
+                }
+                String key = name.substring(0, name.length() - ".passed".length());
+                int bar = key.lastIndexOf('|');
+                if (bar < 0) {
+                    throw new IOException("Malformed baseline key " + name);
+                }
+                String ops = props.getProperty(key + ".ops");
+                long[] samples = split(props.getProperty(key + ".samples", ""));
+                String runMedians = props.getProperty(key + ".runMedians");
+                entries.put(key, new Entry(key.substring(0, bar), key.substring(bar + 1),
+                        Boolean.parseBoolean(props.getProperty(name)), samples,
+                        runMedians != null ? split(runMedians)
+                                : new long[] {samples.length == 0 ? 0 : samples[samples.length / 2]},
+                        Long.parseLong(props.getProperty(key + ".allocatedBytes",
+                                Long.toString(AllocationMeter.UNSUPPORTED))),
+                        ops == null ? null : split(ops)));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed baseline " + file + ": " + e.getMessage());
+        }
+        if (entries.isEmpty()) {
+            throw new IOException("Baseline " + file + " has no entries");
+        }
+        return new PerformanceBaseline(entries);
+    }
+
+    private static String join(long[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (long v : values) {
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append(v);
+        }
+        return sb.toString();
+    }
+
+    private static long[] split(String value) {
+        if (value.isEmpty()) {
+            return new long[0];
+        }
+        String[] parts = value.split(",");
+        long[] values = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Long.parseLong(parts[i].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Evenly spaced order statistics of sorted samples, so the stored distribution
+     * keeps its shape but not its size.
+     */
+    static long[] quantiles(long[] sorted, int max) {
+        if (sorted.length <= max) {
+            return sorted;
+        }
+        long[] kept = new long[max];
+        for (int i = 0; i < max; i++) {
+            kept[i] = sorted[(int) ((i + 0.5) * sorted.length / max)];
+        }
+        return kept;
+    }
+
+    // --- Comparison ---
+
+    /**
+     * Compare a new run against this baseline. Pairs missing on either side are skipped.
+     * @param current The new run
+     * @param threshold Allowed relative growth, e.g. 0.10 for 10%
+     * @return Every metric that regressed, in baseline order
+     */
+    public List<Regression> check(PerformanceBaseline current, double threshold) {
+        // Only forgive a uniform slowdown; a faster machine should not tighten the check
+        double drift = Math.max(1.0, drift(current));
+        double jump = runJump();
+
+        // Per algorithm: how many pairs are above their slowest run, out of how many
+        Map<String, int[]> above = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            Entry base = item.getValue();
+            Entry now = current.entries.get(item.getKey());
+            if (!timeComparable(base, now)) {
+                continue;
+            }
+            // {pairs above, pairs, fewest runs behind a pair}
+            int[] count = above.computeIfAbsent(base.algorithm, a -> new int[] {0, 0, Integer.MAX_VALUE});
+            if (now.median() / drift > base.slowestRunMedian() * (1.0 + threshold)) {
+                count[0]++;
+            }
+            count[1]++;
+            count[2] = Math.min(count[2], base.runMedians.length);
+        }
+        Map<String, Double> pValues = new LinkedHashMap<>();
+        for (Map.Entry<String, int[]> item : above.entrySet()) {
+            int[] count = item.getValue();
+            pValues.put(item.getKey(), binomialTail(count[1], count[0], 1.0 / (count[2] + 1)));
+        }
+        Set<String> slower = holm(pValues, ALPHA);
+
+        List<Regression> regressions = new ArrayList<>();
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            Entry base = item.getValue();
+            Entry now = current.entries.get(item.getKey());
+            if (now == null) {
+                continue;
+            }
+            if (base.passed && !now.passed) {
+                regressions.add(new Regression(base.test, base.algorithm, "correctness", "PASS", "FAIL", ""));
+                continue;
+            }
+            if (!timeComparable(base, now)) {
+                continue;
+            }
+
+            double nowTime = now.median() / drift;
+            boolean alone = nowTime > base.pairBound(threshold, jump);
+            if (alone || slower.contains(base.algorithm) && nowTime > base.timeBound(threshold)) {
+                long baseMedian = base.slowestRunMedian();
+                double growth = nowTime / baseMedian - 1.0;
+                int[] count = above.get(base.algorithm);
+                String why = alone ? String.format("beyond the widest run jump x%.2f", jump)
+                        : String.format("%d/%d pairs above, Holm p = %.2g", count[0], count[1],
+                                pValues.get(base.algorithm));
+                regressions.add(new Regression(base.test, base.algorithm, "median time",
+                        String.format("%.3f μs", baseMedian / 1000.0), String.format("%.3f μs", now.median() / 1000.0),
+                        String.format("+%.1f%% over slowest run after drift; %s", growth * 100.0, why)));
+            }
+
+            if (base.allocatedBytes >= 0 && now.allocatedBytes >= 0
+                    && now.allocatedBytes > base.allocatedBytes * (1.0 + threshold) + ALLOCATION_SLACK_BYTES) {
+                regressions.add(new Regression(base.test, base.algorithm, "allocation",
+                        AllocationMeter.format(base.allocatedBytes), AllocationMeter.format(now.allocatedBytes), ""));
+            }
+
+            if (base.ops != null && now.ops != null) {
+                for (int i = 0; i < OP_NAMES.length && i < base.ops.length && i < now.ops.length; i++) {
+                    if (now.ops[i] > base.ops[i] * (1.0 + threshold)) {
+                        regressions.add(new Regression(base.test, base.algorithm, OP_NAMES[i],
+                                Long.toString(base.ops[i]), Long.toString(now.ops[i]), ""));
+                    }
+                }
+            }
+        }
+        return regressions;
+    }
+
+    private static boolean timeComparable(Entry base, Entry now) {
+        return now != null && base.passed && now.passed && base.samples.length > 0 && now.samples.length > 0;
+    }
+
+    /**
+     * Holm's step-down procedure: with the p-values in ascending order, the k-th
+     * (from 0) is significant while it stays below alpha / (count - k).
+     * @return Keys of the significant p-values
+     */
+    static Set<String> holm(Map<String, Double> pValues, double alpha) {
+        List<Map.Entry<String, Double>> sorted = new ArrayList<>(pValues.entrySet());
+        sorted.sort(Map.Entry.comparingByValue());
+        Set<String> significant = new HashSet<>();
+        for (int k = 0; k < sorted.size(); k++) {
+            if (sorted.get(k).getValue() >= alpha / (sorted.size() - k)) {
+                break;
+            }
+            significant.add(sorted.get(k).getKey());
+        }
+        return significant;
+    }
+
+    /**
+     * Overall speed of the current run relative to the baseline: the median over all
+     * pairs passing in both of current median / baseline median (1.0 if none).
+     */
+    public double drift(PerformanceBaseline current) {
+        List<Double> ratios = new ArrayList<>();
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            Entry base = item.getValue();
+            Entry now = current.entries.get(item.getKey());
+            if (now != null && base.passed && now.passed && base.median() > 0 && now.median() > 0) {
+                ratios.add((double) now.median() / base.median());
+            }
+        }
+        if (ratios.isEmpty()) {
+            return 1.0;
+        }
+        ratios.sort(null);
+        return ratios.get(ratios.size() / 2);
+    }
+
+    /**
+     * Upper tail of the binomial distribution, summed in log space so large n does not underflow.
+     * @return P(X >= k) for X ~ Binomial(n, p)
+     */
+    static double binomialTail(int n, int k, double p) {
+        if (k <= 0) {
+            return 1.0;
+        }
+        double logTerm = n * Math.log1p(-p); // log P(X = 0)
+        double logOdds = Math.log(p) - Math.log1p(-p);
+        double tail = 0;
+        for (int i = 1; i <= n; i++) {
+            logTerm += Math.log((double) (n - i + 1) / i) + logOdds;
+            if (i >= k) {
+                tail += Math.exp(logTerm);
+            }
+        }
+        return Math.min(1.0, tail);
+    }
+
+    // --- Self-check ---
+
+    /**
+     * Check check() itself on synthetic runs of 8 algorithms x 30 tests with 5% noise:
+     * an unchanged run must pass, and one pair made 10x slower, or half of one
+     * algorithm's pairs made 40% slower, must be reported without any other pair.
+     * @return One line per failed case; empty if all passed
+     */
+    static List<String> selfCheck() {
+        Random random = new Random(47);
+        long[] times = new long[8 * 30];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = 300 + random.nextInt(50_000);
+        }
+        PerformanceBaseline baseline = syntheticRun(random, times, Set.of(), 1.0);
+        for (int run = 1; run < 3; run++) {
+            baseline = baseline.merge(syntheticRun(random, times, Set.of(), 1.0));
+        }
+
+        Set<Integer> half = new HashSet<>();
+        for (int i = 3 * 30; i < 3 * 30 + 30; i += 2) {
+            half.add(i);
+        }
+        Map<String, Set<Integer>> cases = new LinkedHashMap<>();
+        cases.put("unchanged run", Set.of());
+        cases.put("one pair 10x slower", Set.of(17));
+        cases.put("15 of 30 pairs of one algorithm 40% slower", half);
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Set<Integer>> item : cases.entrySet()) {
+            Set<Integer> slowed = item.getValue();
+            PerformanceBaseline current = syntheticRun(random, times, slowed, slowed.size() == 1 ? 10.0 : 1.4);
+            Set<String> expected = new HashSet<>();
+            for (int i : slowed) {
+                expected.add(key("test" + i % 30, "algorithm" + i / 30));
+            }
+            Set<String> reported = new HashSet<>();
+            for (Regression r : baseline.check(current, DEFAULT_THRESHOLD)) {
+                reported.add(key(r.test, r.algorithm));
+            }
+            if (!reported.equals(expected)) {
+                failures.add(item.getKey() + ": expected " + new TreeSet<>(expected)
+                        + ", reported " + new TreeSet<>(reported));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * One run of 10 samples per pair around the given times, with the pairs in slowed
+     * made factor times slower
+     */
+    private static PerformanceBaseline syntheticRun(Random random, long[] times, Set<Integer> slowed, double factor) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (int i = 0; i < times.length; i++) {
+            double time = times[i] * (slowed.contains(i) ? factor : 1.0);
+            long[] samples = new long[10];
+            for (int j = 0; j < samples.length; j++) {
+                samples[j] = Math.round(time * (0.95 + 0.1 * random.nextDouble()));
+            }
+            Arrays.sort(samples);
+            String test = "test" + i % 30;
+            String algorithm = "algorithm" + i / 30;
+            entries.put(key(test, algorithm), new Entry(test, algorithm, true, samples,
+                    new long[] {samples[samples.length / 2]}, AllocationMeter.UNSUPPORTED, null));
+        }
+        return new PerformanceBaseline(entries);
+    }
+
+    /**
+     * Print regressions as a table.
+     */
+    static void printRegressions(List<Regression> regressions, double threshold, int pairsChecked, int runs,
+                                 double drift, double jump) {
+        System.out.println("\n" + "=".repeat(120));
+        System.out.printf("BASELINE CHECK - %d pair(s) from %d run(s), threshold %.0f%% + run spread, time regressions "
+                + "need Holm-corrected p < %.3f or a jump past x%.2f, run drift x%.2f%n", pairsChecked, runs,
+                threshold * 100.0, ALPHA, jump, drift);
+        System.out.println("=".repeat(120));
+        if (runs < 2) {
+            System.out.printf("⚠ Single-run baseline: time checks cannot see run-to-run noise and assume a jump of x%.0f; "
+                    + "add runs with --baseline-append%n", SINGLE_RUN_JUMP);
+        }
+        if (regressions.isEmpty()) {
+            System.out.println("✓ No regressions against the baseline");
+            System.out.println("=".repeat(120));
+            return;
+        }
+        System.out.printf("%-30s %-22s %-14s %14s %14s  %s%n", "Test Case", "Algorithm", "Metric", "Baseline", "Current", "");
+        System.out.println("-".repeat(120));
+        for (Regression r : regressions) {
+            System.out.printf("%-30s %-22s %-14s %14s %14s  %s%n", truncate(r.test, 29), truncate(r.algorithm, 21),
+                    r.metric, r.baseline, r.current, r.detail);
+        }
+        System.out.println("=".repeat(120));
+        System.out.println("✗ " + regressions.size() + " regression(s) against the baseline");
+    }
+
+    private static String truncate(String s, int maxLength) {
+        if (s.length() <= maxLength) {
+            return s;
+        }
+        return s.substring(0, maxLength - 2) + "..";
+    }
+}
@@ -8,6 +8,9 @@
  * returns a non-null value.
  */
 public abstract class PreAnalysis {
+
+    /** Engine a choice is judged against when the analysis has no runner-up */
+    public static final String DEFAULT_ALTERNATIVE = "GoCrazy";
     
     /**
      * Analyze the text and pattern to choose the best algorithm
@@ -24,12 +27,70 @@ public abstract class PreAnalysis {
      * - Think about which algorithm performs best in different scenarios
      */
     public abstract String chooseAlgorithm(String text, String pattern);
+
+    /**
+     * Analyze the text and pattern and return a ready-to-run engine.
+     *
+     * The engine is a shared instance from SolutionFactory (no reflection after the
+     * first lookup) and has already done its per-pattern preprocessing, so the
+     * following Solve call only pays for the search itself. Recorded as a
+     * PreAnalysisEvent when Java Flight Recorder is running and the choice is slower
+     * than the event's threshold, together with alternativeAlgorithm() so the event
+     * shows what the choice was made against.
+     *
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @return The engine to use, or null if chooseAlgorithm returned null
+     */
+    public Solution chooseSolution(String text, String pattern) {
+        PreAnalysisEvent event = new PreAnalysisEvent();
+        event.begin();
+        String name = chooseAlgorithm(text, pattern);
+        Solution solution = null;
+        if (name != null) {
+            solution = SolutionFactory.getInstance(name);
+            solution.prepare(pattern);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.strategy = getClass().getSimpleName();
+            event.chosenAlgorithm = name;
+            event.alternativeAlgorithm = name == null ? null : alternativeAlgorithm(text, pattern, name);
+            event.textLength = text.length();
+            event.patternLength = pattern.length();
+            event.commit();
+        }
+        return solution;
+    }
     
+    /**
+     * The engine a choice is compared with in PreAnalysisEvent. Analyses that rank
+     * the engines override this to return their runner-up; the default is the
+     * general-purpose DEFAULT_ALTERNATIVE, or KMP when that was the choice.
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @param chosen The engine chooseAlgorithm returned
+     * @return Name of the alternative engine
+     */
+    public String alternativeAlgorithm(String text, String pattern, String chosen) {
+        return chosen.equals(DEFAULT_ALTERNATIVE) ? "KMP" : DEFAULT_ALTERNATIVE;
+    }
+
     /**
      * Get a description of your analysis strategy
      * This will be displayed in the output
      */
     public abstract String getStrategyDescription();
+
+    /**
+     * The pre-analysis the test runners compare: the hand-written rules, or the
+     * calibrated cost model (which falls back to those rules when no model is loaded).
+     * @param costModel true for ModelPreAnalysis, false for StudentPreAnalysis
+     * @return A new instance
+     */
+    public static PreAnalysis create(boolean costModel) {
+        return costModel ? new ModelPreAnalysis() : new StudentPreAnalysis();
+    }
 }
 
 
@@ -42,6 +103,8 @@ public abstract class PreAnalysis {
  * 2. Patterns longer than text use RabinKarp (fastest failure).
  * 3. Binary data uses RabinKarp for robustness.
  * 4. Highly repetitive patterns use KMP (single unique char) or RabinKarp (high overlap) to avoid worst-case behavior.
+ *    So do patterns expected to match densely enough that the matches cover the text.
+ *    Short patterns of common characters in low-entropy (e.g. binary-alphabet) text use RabinKarp.
  * 5. Long patterns (> 20 chars) use BoyerMoore for efficient skipping.
  * 6. All other cases default to GoCrazy (hybrid) which handles mixed scenarios well.
  */
@@ -63,24 +126,43 @@ class StudentPreAnalysis extends PreAnalysis {
             return "RabinKarp";
         }
 
+        // Pattern features (LPS, histogram) come from one shared pass
+        PatternProfile profile = PatternProfile.of(pattern);
+
         // 3. Binary data: RabinKarp is robust
-        if (isBinaryData(text, 1000)) {
+        // (strided sample across the whole text, bounded cost regardless of n)
+        TextProfile textProfile = TextProfile.sample(text);
+        if (textProfile.isBinary()) {
             return "RabinKarp";
         }
 
         // 4. Single unique character: KMP is O(n)
-        int uniqueChars = countUniqueChars(pattern);
+        int uniqueChars = profile.alphabetSize();
         if (uniqueChars == 1) {
             return "KMP";
         }
         
+        // 4b. Dense matches: if the expected matches (from the sampled character
+        // frequencies) would cover the text, Boyer-Moore re-verifies m characters at
+        // every one of them and loses its skips; KMP stays linear
+        if (textProfile.expectedMatches(pattern) * m > n) {
+            return "KMP";
+        }
+
+        // 4c. Short pattern of common characters in a low-entropy text: Boyer-Moore's
+        // shifts collapse to one or two positions and RabinKarp's rolling hash is cheaper
+        // (periodic patterns are left to the KMP rule below)
+        double repeatScore = profile.repeatScore();
+        if (repeatScore <= 0.3 && textProfile.skipsCollapse(pattern)) {
+            return "RabinKarp";
+        }
+
         // 5. Long text: BoyerMoore skips are valuable
         if (n > 5000) {
             return "BoyerMoore";
         }
 
         // 6. Repetitive patterns: KMP avoids worst-case O(nm)
-        double repeatScore = calculatePatternRepeatScore(pattern);
         if (repeatScore > 0.3) {
              return "KMP";
         }
@@ -98,57 +180,46 @@ class StudentPreAnalysis extends PreAnalysis {
     public String getStrategyDescription() {
         return "Adaptive strategy based on empirical test results: Naive for short, KMP/RK for repetitive, BM for long patterns, GoCrazy for mixed cases.";
     }
+}
 
-    // --- Feature Extraction Helpers ---
 
-    private boolean isBinaryData(String text, int limit) {
-        int checkLen = Math.min(text.length(), limit);
-        int nonPrintable = 0;
-        for (int i = 0; i < checkLen; i++) {
-            char c = text.charAt(i);
-            if (c < 32 && c != '\t' && c != '\n' && c != '\r') {
-                nonPrintable++;
-            }
-        }
-        return (double) nonPrintable / checkLen > 0.1;
+/**
+ * Model-driven pre-analysis: picks the engine with the lowest cost predicted by a
+ * CostModel calibrated on this machine (see "java ManualTest calibrate").
+ * Falls back to StudentPreAnalysis when no calibrated model is available.
+ */
+class ModelPreAnalysis extends PreAnalysis {
+    private final CostModel model;
+    private final PreAnalysis fallback = new StudentPreAnalysis();
+
+    public ModelPreAnalysis() {
+        this(CostModel.loadDefault());
     }
 
-    private int countUniqueChars(String pattern) {
-        boolean[] seen = new boolean[256]; 
-        int count = 0;
-        for (int i = 0; i < pattern.length(); i++) {
-            char c = pattern.charAt(i);
-            if (c < 256 && !seen[c]) {
-                seen[c] = true;
-                count++;
-            }
+    public ModelPreAnalysis(CostModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public String chooseAlgorithm(String text, String pattern) {
+        if (model == null || text == null || pattern == null) {
+            return fallback.chooseAlgorithm(text, pattern);
         }
-        return count == 0 ? 1 : count;
+        return model.cheapest(text, pattern);
     }
 
-    private double calculatePatternRepeatScore(String pattern) {
-        if (pattern.isEmpty()) return 0.0;
-        int m = pattern.length();
-        int[] lps = new int[m];
-        int len = 0;
-        int i = 1;
-        lps[0] = 0;
-        while (i < m) {
-            if (pattern.charAt(i) == pattern.charAt(len)) {
-                len++;
-                lps[i] = len;
-                i++;
-            } else {
-                if (len != 0) len = lps[len - 1];
-                else {
-                    lps[i] = 0;
-                    i++;
-                }
-            }
+    @Override
+    public String alternativeAlgorithm(String text, String pattern, String chosen) {
+        String runnerUp = model == null ? null : model.cheapestExcept(text, pattern, chosen);
+        return runnerUp != null ? runnerUp : super.alternativeAlgorithm(text, pattern, chosen);
+    }
+
+    @Override
+    public String getStrategyDescription() {
+        if (model == null) {
+            return "Cost model (not calibrated, using StudentPreAnalysis rules)";
         }
-        int maxLps = 0;
-        for (int val : lps) maxLps = Math.max(maxLps, val);
-        return (double) maxLps / m;
+        return "Cost model: lowest predicted time from per-engine fits calibrated on this machine";
     }
 }
 
@@ -10,6 +10,8 @@ public class PreAnalysisComparison {
      */
     public static class ComparisonResult {
         String testCaseName;
+        int textLength;
+        int patternLength;
         String chosenAlgorithm;
         long preAnalysisTimeNanos;
         long chosenAlgorithmTimeNanos;
@@ -18,13 +20,21 @@ public class PreAnalysisComparison {
         long fastestAlgorithmTime;
         String fastestAlgorithm;
         long timeSavedOrLost; // Positive means saved, negative means lost
-        boolean preAnalysisChoseFastest;
+        boolean preAnalysisChoseFastest; // Fastest median, or statistically tied with it
+        boolean fastestIsClear; // Fastest median's CI overlaps no other algorithm's CI
         List<String> allAlgorithmNames; // Ordered list of all algorithms
+        TimingStats preAnalysisStats;
+        Map<String, TimingStats> allAlgorithmStats;
+        long preAnalysisAllocatedBytes; // Heap bytes per call, or AllocationMeter.UNSUPPORTED
+        long chosenAlgorithmAllocatedBytes;
+        Map<String, Long> allAlgorithmAllocatedBytes;
 
         public ComparisonResult(String testCaseName) {
             this.testCaseName = testCaseName;
             this.allAlgorithmTimes = new HashMap<>();
             this.allAlgorithmNames = new ArrayList<>();
+            this.allAlgorithmStats = new LinkedHashMap<>();
+            this.allAlgorithmAllocatedBytes = new HashMap<>();
         }
     }
     
@@ -46,55 +56,56 @@ public class PreAnalysisComparison {
     
     /**
      * Compare pre-analysis performance for a single test case
-     * Runs each algorithm 5 times and takes average
+     * Times each algorithm adaptively (see TimingStats) and compares medians
      */
     private static ComparisonResult compareForTestCase(PreAnalysis preAnalysis, TestCase testCase) {
         ComparisonResult result = new ComparisonResult(testCase.getName());
+        result.textLength = testCase.getText().length();
+        result.patternLength = testCase.getPattern().length();
 
-        // Run pre-analysis 5 times and take average
-        long totalAnalysisTime = 0;
-        String chosenAlgorithm = null;
-        for (int i = 0; i < 5; i++) {
-            long analysisStart = System.nanoTime();
-            chosenAlgorithm = preAnalysis.chooseAlgorithm(testCase.getText(), testCase.getPattern());
-            long analysisEnd = System.nanoTime();
-            totalAnalysisTime += (analysisEnd - analysisStart);
+        // Time the pre-analysis
+        // (analysis includes fetching and preparing the chosen engine)
+        Solution chosenSolution;
+        try {
+            Solution[] chosen = new Solution[1];
+            result.preAnalysisStats = TimingStats.measure(
+                    () -> chosen[0] = preAnalysis.chooseSolution(testCase.getText(), testCase.getPattern()));
+            chosenSolution = chosen[0];
+            result.preAnalysisAllocatedBytes = AllocationMeter.bytesPerCall(
+                    () -> preAnalysis.chooseSolution(testCase.getText(), testCase.getPattern()));
+        } catch (IllegalArgumentException e) {
+            return null; // Pre-analysis chose an unknown algorithm
         }
 
-        result.preAnalysisTimeNanos = totalAnalysisTime / 5;
-        result.chosenAlgorithm = chosenAlgorithm;
+        result.preAnalysisTimeNanos = result.preAnalysisStats.median();
 
         // If pre-analysis returns null, skip this test case
-        if (chosenAlgorithm == null) {
+        if (chosenSolution == null) {
             return null;
         }
+        String chosenAlgorithm = chosenSolution.getName();
+        result.chosenAlgorithm = chosenAlgorithm;
 
-        // Run the chosen algorithm 5 times and take average
+        // Time the chosen algorithm
         try {
-            Solution chosenSolution = createSolutionByName(chosenAlgorithm);
-            // Warm up
-            chosenSolution.Solve(testCase.getText(), testCase.getPattern());
-
-            long totalChosenTime = 0;
-            for (int i = 0; i < 5; i++) {
-                long chosenStart = System.nanoTime();
-                chosenSolution.Solve(testCase.getText(), testCase.getPattern());
-                long chosenEnd = System.nanoTime();
-                totalChosenTime += (chosenEnd - chosenStart);
-            }
-
-            result.chosenAlgorithmTimeNanos = totalChosenTime / 5;
+            TimingStats chosenStats = TimingStats.measure(
+                    () -> chosenSolution.solveRecorded(testCase.getText(), testCase.getPattern()));
+            result.allAlgorithmStats.put(chosenAlgorithm, chosenStats);
+            result.chosenAlgorithmTimeNanos = chosenStats.median();
+            result.chosenAlgorithmAllocatedBytes = AllocationMeter.bytesPerCall(
+                    () -> chosenSolution.solveRecorded(testCase.getText(), testCase.getPattern()));
             result.totalTimeWithPreAnalysis = result.preAnalysisTimeNanos + result.chosenAlgorithmTimeNanos;
 
         } catch (Exception e) {
             return null; // Skip if chosen algorithm fails
         }
 
-        // Run all algorithms 5 times for comparison
+        // Time all other algorithms for comparison
         long minTime = result.chosenAlgorithmTimeNanos;
         String fastestAlg = chosenAlgorithm;
 
         result.allAlgorithmTimes.put(chosenAlgorithm, result.chosenAlgorithmTimeNanos);
+        result.allAlgorithmAllocatedBytes.put(chosenAlgorithm, result.chosenAlgorithmAllocatedBytes);
         result.allAlgorithmNames.add(chosenAlgorithm);
 
         for (Class<? extends Solution> algorithmClass : Solution.SUBCLASSES) {
@@ -102,20 +113,15 @@ public class PreAnalysisComparison {
 
             if (!algName.equals(chosenAlgorithm)) {
                 try {
-                    Solution solution = algorithmClass.getDeclaredConstructor().newInstance();
-                    // Warm up
-                    solution.Solve(testCase.getText(), testCase.getPattern());
-
-                    long totalTime = 0;
-                    for (int i = 0; i < 5; i++) {
-                        long start = System.nanoTime();
-                        solution.Solve(testCase.getText(), testCase.getPattern());
-                        long end = System.nanoTime();
-                        totalTime += (end - start);
-                    }
+                    Solution solution = SolutionFactory.getInstance(algName);
+                    TimingStats stats = TimingStats.measure(
+                            () -> solution.solveRecorded(testCase.getText(), testCase.getPattern()));
 
-                    long avgTime = totalTime / 5;
+                    long avgTime = stats.median();
+                    result.allAlgorithmStats.put(algName, stats);
                     result.allAlgorithmTimes.put(algName, avgTime);
+                    result.allAlgorithmAllocatedBytes.put(algName, AllocationMeter.bytesPerCall(
+                            () -> solution.solveRecorded(testCase.getText(), testCase.getPattern())));
                     result.allAlgorithmNames.add(algName);
 
                     if (avgTime < minTime) {
@@ -131,7 +137,10 @@ public class PreAnalysisComparison {
 
         result.fastestAlgorithmTime = minTime;
         result.fastestAlgorithm = fastestAlg;
-        result.preAnalysisChoseFastest = fastestAlg.equals(chosenAlgorithm);
+        result.fastestIsClear = fastestAlg.equals(TimingStats.clearWinner(result.allAlgorithmStats));
+        // A choice whose CI overlaps the fastest one's is as good as we can tell
+        result.preAnalysisChoseFastest = fastestAlg.equals(chosenAlgorithm)
+                || result.allAlgorithmStats.get(chosenAlgorithm).overlaps(result.allAlgorithmStats.get(fastestAlg));
 
         // Calculate time saved or lost
         // Time saved = (fastest algorithm time) - (pre-analysis time + chosen algorithm time)
@@ -141,18 +150,6 @@ public class PreAnalysisComparison {
         return result;
     }
     
-    /**
-     * Create a solution instance by algorithm name
-     */
-    private static Solution createSolutionByName(String name) throws Exception {
-        for (Class<? extends Solution> algorithmClass : Solution.SUBCLASSES) {
-            if (algorithmClass.getSimpleName().equals(name)) {
-                return algorithmClass.getDeclaredConstructor().newInstance();
-            }
-        }
-        throw new IllegalArgumentException("Algorithm not found: " + name);
-    }
-    
     /**
      * Print the pre-analysis comparison table
      */
@@ -173,8 +170,9 @@ public class PreAnalysisComparison {
         System.out.println("=".repeat(120));
         
         // Print header
-        System.out.printf("%-25s %-12s %-12s %-12s %-12s %-15s %-15s%n",
-                "Test Case", "Chosen Alg", "Analysis(μs)", "Exec(μs)", "Total(μs)", "Fastest Alg", "Time Diff(μs)");
+        System.out.printf("%-25s %-12s %-12s %-12s %-12s %-11s %-15s %-11s %-15s%n",
+                "Test Case", "Chosen Alg", "Analysis(μs)", "Exec(μs)", "Total(μs)", "Alloc",
+                "Fastest Alg", "Alloc", "Time Diff(μs)");
         System.out.println("-".repeat(120));
         
         // Print results for each test case
@@ -195,13 +193,16 @@ public class PreAnalysisComparison {
                 timeDiffStr = String.format("✗ %.2f", timeDiffUs);
             }
             
-            System.out.printf("%-25s %-12s %12.2f %12.2f %12.2f %-15s %15s%n",
+            System.out.printf("%-25s %-12s %12.2f %12.2f %12.2f %11s %-15s %11s %15s%n",
                     truncate(result.testCaseName, 23),
                     truncate(result.chosenAlgorithm, 10),
                     analysisTimeUs,
                     execTimeUs,
                     totalTimeUs,
-                    truncate(result.fastestAlgorithm, 13),
+                    AllocationMeter.format(totalAllocated(result)),
+                    (result.fastestIsClear ? "" : "≈") + truncate(result.fastestAlgorithm, 13),
+                    AllocationMeter.format(result.allAlgorithmAllocatedBytes.getOrDefault(
+                            result.fastestAlgorithm, AllocationMeter.UNSUPPORTED)),
                     timeDiffStr);
             
             totalTimeSaved += result.timeSavedOrLost;
@@ -245,9 +246,12 @@ public class PreAnalysisComparison {
         System.out.println("- 'Analysis(μs)': Time spent in pre-analysis choosing algorithm");
         System.out.println("- 'Exec(μs)': Time spent executing the chosen algorithm");
         System.out.println("- 'Total(μs)': Analysis + Execution time");
-        System.out.println("- 'Fastest Alg': The actually fastest algorithm for this test case");
+        System.out.println("- 'Alloc': Heap bytes allocated per call (analysis + chosen execution; then the fastest algorithm's)");
+        System.out.println("- Times are medians of adaptively repeated runs (see TimingStats)");
+        System.out.println("- 'Fastest Alg': The algorithm with the lowest median for this test case");
+        System.out.println("  ('≈' = its 95% CI overlaps another algorithm's, so it is not clearly fastest)");
         System.out.println("- 'Time Diff(μs)': Positive = saved time, Negative = lost time");
-        System.out.println("- '✓' = Pre-analysis chose the fastest algorithm");
+        System.out.println("- '✓' = Pre-analysis chose the fastest algorithm, or one within its confidence interval");
         System.out.println("- '✗' = Pre-analysis did NOT choose the fastest algorithm");
         
         System.out.println("=".repeat(120));
@@ -335,6 +339,49 @@ public class PreAnalysisComparison {
         System.out.println("  - " + RED + "Positive (Red)" + RESET + " = PreAnalysis was SLOWER (wasted time)");
         System.out.println("- 'N/A' = This is the chosen algorithm (already included in PreA+Choice)");
         System.out.println("=".repeat(140));
+
+        printAllocationComparison(results, allAlgorithms);
+    }
+
+    /**
+     * Print heap bytes allocated per call: PreAnalysis + chosen algorithm, and every algorithm alone
+     */
+    private static void printAllocationComparison(List<ComparisonResult> results, List<String> allAlgorithms) {
+        if (!AllocationMeter.isSupported()) {
+            System.out.println("\n(Allocation accounting is not supported by this JVM)");
+            return;
+        }
+
+        System.out.println("\nALLOCATION PER CALL (heap bytes, median of " + AllocationMeter.CALLS + " calls)");
+        System.out.println("-".repeat(140));
+        System.out.printf("%-32s %-15s %-20s", "Test Case", "Choice", "PreA+Choice");
+        for (String alg : allAlgorithms) {
+            System.out.printf(" %-22s", truncate(alg, 22));
+        }
+        System.out.println();
+        System.out.println("-".repeat(140));
+
+        for (ComparisonResult result : results) {
+            System.out.printf("%-32s %-15s %20s", truncate(result.testCaseName, 30),
+                    truncate(result.chosenAlgorithm, 13), AllocationMeter.format(totalAllocated(result)));
+            for (String alg : allAlgorithms) {
+                Long bytes = result.allAlgorithmAllocatedBytes.get(alg);
+                System.out.printf(" %-22s", bytes == null ? "N/A" : AllocationMeter.format(bytes));
+            }
+            System.out.println();
+        }
+        System.out.println("=".repeat(140));
+    }
+
+    /**
+     * Bytes allocated by the pre-analysis plus the chosen algorithm, or UNSUPPORTED
+     */
+    private static long totalAllocated(ComparisonResult result) {
+        if (result.preAnalysisAllocatedBytes == AllocationMeter.UNSUPPORTED
+                || result.chosenAlgorithmAllocatedBytes == AllocationMeter.UNSUPPORTED) {
+            return AllocationMeter.UNSUPPORTED;
+        }
+        return result.preAnalysisAllocatedBytes + result.chosenAlgorithmAllocatedBytes;
     }
 
     /**
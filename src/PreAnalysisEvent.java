@@ -0,0 +1,38 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for one engine choice by PreAnalysis.chooseSolution(),
+ * covering the analysis and the chosen engine's pattern preprocessing. Paired with
+ * the SearchEvent that follows it on the same thread, it shows when the choice cost
+ * more than the search it was meant to speed up.
+ */
+@Name("stringmatching.PreAnalysis")
+@Label("Pre-Analysis")
+@Category({"String Matching"})
+@Description("An engine choice slower than the threshold")
+@Threshold("1 ms")
+@StackTrace(false)
+class PreAnalysisEvent extends jdk.jfr.Event {
+    @Label("Strategy")
+    @Description("PreAnalysis implementation that made the choice")
+    String strategy;
+
+    @Label("Chosen Algorithm")
+    @Description("Engine the analysis chose, or null to run every engine")
+    String chosenAlgorithm;
+
+    @Label("Alternative Algorithm")
+    @Description("Engine the choice is judged against: the runner-up, or the default engine")
+    String alternativeAlgorithm;
+
+    @Label("Text Length")
+    int textLength;
+
+    @Label("Pattern Length")
+    int patternLength;
+}
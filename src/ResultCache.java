@@ -0,0 +1,282 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional memoization layer in front of the Solution engines for exact duplicate
+ * (text, pattern, algorithm) queries.
+ *
+ * Results are stored as int[] rather than the comma-joined String. Entries are keyed
+ * by the text's content fingerprint (see TextIndexCache.fingerprint) and checked
+ * against the retained text before a hit is served, so a fingerprint collision is
+ * treated as a miss. That check is a reference comparison when the caller passes the
+ * same String again and an equals() outside the monitor otherwise, so concurrent
+ * callers only share the lock for the map lookup. All entries for one text share a
+ * single retained copy, which is charged to the budget once; each entry is charged
+ * for its result array and pattern. Entries are evicted in LRU order once the byte
+ * budget is exceeded, and a text is released with its last entry.
+ */
+public class ResultCache {
+    public static final long DEFAULT_BUDGET_BYTES = 256L * 1024 * 1024;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final HashMap<Long, Text> texts = new HashMap<>();
+    private long budgetBytes;
+    private long usedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResultCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Solve through the cache: serve a memoized result if this exact query has been
+     * answered by the same algorithm before, otherwise run the engine and remember it.
+     *
+     * @param engine The algorithm to run on a miss
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @return Comma-separated indices, exactly as engine.Solve would return them
+     */
+    public String solve(Solution engine, String text, String pattern) {
+        long fingerprint = TextIndexCache.fingerprint(text);
+        Key key = new Key(engine.getName(), fingerprint, pattern);
+        Text cached = null;
+        String cachedText = null;
+        int[] cachedIndices = null;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                cached = entry.text;
+                cachedText = cached.text;
+                cachedIndices = entry.indices;
+            }
+        }
+        if (cached != null && sameText(cached, cachedText, text)) {
+            hits.increment();
+            return engine.indicesToString(cachedIndices);
+        }
+        misses.increment();
+
+        String result = engine.solveRecorded(text, pattern);
+        SearchBudget budget = SearchBudget.current();
+        if (budget != null && budget.isExhausted()) {
+            return result; // Partial result of a search that ran out of time; never cache it
+        }
+        int[] indices = parseIndices(result);
+        long bytes = 16 + 4L * indices.length + 40 + 2L * pattern.length() + 64;
+
+        // Only the common case of a text that is new or retained as this same String is
+        // resolved under the lock; anything else needs equals() and is checked outside it
+        Text shared;
+        synchronized (this) {
+            shared = texts.get(fingerprint);
+        }
+        if (shared != null && !sameText(shared, shared.text, text)) {
+            return result; // Fingerprint collision with a different retained text; leave it be
+        }
+
+        synchronized (this) {
+            Text current = texts.get(fingerprint);
+            if (current != shared) {
+                return result; // Text released or replaced meanwhile; the next miss will cache it
+            }
+            long textBytes = current == null ? 40 + 2L * text.length() : 0;
+            if (bytes + textBytes > budgetBytes) {
+                return result;
+            }
+            if (current == null) {
+                current = new Text(text, fingerprint, textBytes);
+                texts.put(fingerprint, current);
+                usedBytes += textBytes;
+            }
+            current.entries++;
+            Entry previous = entries.put(key, new Entry(current, indices, bytes));
+            if (previous != null) {
+                usedBytes -= previous.bytes;
+                release(previous.text);
+            }
+            usedBytes += bytes;
+            evictToBudget();
+        }
+        return result;
+    }
+
+    /**
+     * Whether the retained text is the queried one. Called without the monitor held,
+     * since the equals() fallback is O(n); an equal String then replaces the retained
+     * one, so a caller that keeps passing its latest copy gets O(1) hits from then on.
+     */
+    private boolean sameText(Text shared, String retained, String text) {
+        if (retained == text) {
+            return true;
+        }
+        if (!retained.equals(text)) {
+            return false;
+        }
+        synchronized (this) {
+            shared.text = text;
+        }
+        return true;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Fraction of lookups served from the cache, 0 if there were none
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evictToBudget();
+    }
+
+    /**
+     * Drop every entry and reset the counters.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        texts.clear();
+        usedBytes = 0;
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Parse the comma-separated result format into an int[].
+     */
+    static int[] parseIndices(String result) {
+        if (result.isEmpty()) {
+            return new int[0];
+        }
+        int[] indices = new int[8];
+        int count = 0;
+        int value = 0;
+        for (int i = 0; i < result.length(); i++) {
+            char c = result.charAt(i);
+            if (c == ',') {
+                if (count == indices.length) {
+                    indices = Arrays.copyOf(indices, count * 2);
+                }
+                indices[count++] = value;
+                value = 0;
+            } else {
+                value = value * 10 + (c - '0');
+            }
+        }
+        if (count == indices.length) {
+            indices = Arrays.copyOf(indices, count + 1);
+        }
+        indices[count++] = value;
+        return Arrays.copyOf(indices, count);
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Entry entry = it.next().getValue();
+            usedBytes -= entry.bytes;
+            it.remove();
+            release(entry.text);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Drop one entry's claim on its text, and the text itself with the last claim.
+     */
+    private void release(Text text) {
+        if (--text.entries == 0) {
+            texts.remove(text.fingerprint);
+            usedBytes -= text.bytes;
+        }
+    }
+
+    private static final class Key {
+        final String algorithm;
+        final long textFingerprint;
+        final String pattern;
+
+        Key(String algorithm, long textFingerprint, String pattern) {
+            this.algorithm = algorithm;
+            this.textFingerprint = textFingerprint;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return textFingerprint == other.textFingerprint
+                    && algorithm.equals(other.algorithm)
+                    && pattern.equals(other.pattern);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = algorithm.hashCode();
+            h = 31 * h + Long.hashCode(textFingerprint);
+            return 31 * h + pattern.hashCode();
+        }
+    }
+
+    private static final class Text {
+        String text; // Guarded by the cache; replaced by an equal String on a hit
+        final long fingerprint;
+        final long bytes;
+        int entries;
+
+        Text(String text, long fingerprint, long bytes) {
+            this.text = text;
+            this.fingerprint = fingerprint;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Entry {
+        final Text text;
+        final int[] indices;
+        final long bytes;
+
+        Entry(Text text, int[] indices, long bytes) {
+            this.text = text;
+            this.indices = indices;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Machine-readable export of ManualTestRunner and PreAnalysisComparison results.
+ *
+ * JSON keeps the structure: one object per test with its input features (the ones
+ * CostModel fits on: n, m, pattern repeat score, text alphabet size) and, per
+ * algorithm, the summary statistics, allocation, operation counts and every raw
+ * timing sample; plus one object per pre-analysis comparison with the chosen and
+ * fastest engine and the pre-analysis overhead. CSV flattens the same data to one
+ * row per (source, test, algorithm) with the samples space-separated in the last
+ * column, for spreadsheets and dashboards.
+ *
+ * All times are in nanoseconds. Either list may be empty.
+ */
+public final class ResultExporter {
+    static final String[] CSV_COLUMNS = {
+            "source", "test", "algorithm", "text_length", "pattern_length", "repeat_score", "alphabet_size",
+            "passed", "timed_out", "median_ns", "p90_ns", "p99_ns", "cv", "ci_low_ns", "ci_high_ns",
+            "alloc_bytes", "comparisons", "shifts", "avg_shift", "lps_fallbacks", "hash_hits", "spurious_hits",
+            "chosen", "fastest", "chose_fastest", "preanalysis_ns", "preanalysis_alloc_bytes", "samples_ns"};
+
+    private ResultExporter() {
+    }
+
+    // --- JSON ---
+
+    /**
+     * Write the results as one JSON document.
+     * @param strategy Class name of the PreAnalysis that made the comparisons, or null
+     */
+    public static void writeJson(Path file, List<ManualTestRunner.TestExecutionResult> runs,
+                                 List<PreAnalysisComparison.ComparisonResult> comparisons,
+                                 String strategy) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"runs\": [");
+        for (int i = 0; i < runs.size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            appendRun(json, runs.get(i));
+        }
+        json.append(runs.isEmpty() ? "],\n" : "\n  ],\n");
+        json.append("  \"preAnalysis\": {\n    \"strategy\": ").append(quote(strategy)).append(",\n");
+        json.append("    \"comparisons\": [");
+        for (int i = 0; i < comparisons.size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            appendComparison(json, comparisons.get(i));
+        }
+        json.append(comparisons.isEmpty() ? "]\n" : "\n    ]\n");
+        json.append("  }\n}\n");
+        Files.writeString(file, json);
+    }
+
+    private static void appendRun(StringBuilder json, ManualTestRunner.TestExecutionResult run) {
+        TestCase test = run.testCase;
+        json.append("    {\"test\": ").append(quote(test.getName()));
+        appendFeatures(json, test.getText(), test.getPattern());
+        json.append(", \"fastest\": ").append(quote(ManualTestRunner.findFastest(run)));
+        json.append(", \"clearWinner\": ").append(quote(ManualTestRunner.findClearWinner(run)));
+        json.append(",\n     \"algorithms\": [");
+        boolean first = true;
+        for (ManualTestRunner.AlgorithmTestResult alg : run.algorithmResults.values()) {
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append("      {\"algorithm\": ").append(quote(alg.algorithmName));
+            json.append(", \"implemented\": ").append(alg.implemented);
+            json.append(", \"passed\": ").append(alg.passed);
+            json.append(", \"timedOut\": ").append(alg.timedOut);
+            if (alg.error != null) {
+                json.append(", \"error\": ").append(quote(alg.error.toString()));
+            }
+            if (alg.stats != null) {
+                appendStats(json, alg.stats);
+            }
+            json.append(", \"allocatedBytes\": ").append(alg.allocatedBytes);
+            if (alg.ops != null) {
+                OpCounters ops = alg.ops;
+                json.append(", \"ops\": {\"comparisons\": ").append(ops.getComparisons())
+                        .append(", \"shifts\": ").append(ops.getShifts())
+                        .append(", \"averageShift\": ").append(number(ops.getAverageShift()))
+                        .append(", \"lpsFallbacks\": ").append(ops.getLpsFallbacks())
+                        .append(", \"hashHits\": ").append(ops.getHashHits())
+                        .append(", \"spuriousHits\": ").append(ops.getSpuriousHits()).append('}');
+            }
+            json.append(", \"samples\": ").append(array(alg.allRunTimes)).append('}');
+        }
+        json.append(first ? "]}" : "\n     ]}");
+    }
+
+    private static void appendComparison(StringBuilder json, PreAnalysisComparison.ComparisonResult c) {
+        json.append("      {\"test\": ").append(quote(c.testCaseName));
+        json.append(", \"textLength\": ").append(c.textLength);
+        json.append(", \"patternLength\": ").append(c.patternLength);
+        json.append(", \"chosen\": ").append(quote(c.chosenAlgorithm));
+        json.append(", \"fastest\": ").append(quote(c.fastestAlgorithm));
+        json.append(", \"choseFastest\": ").append(c.preAnalysisChoseFastest);
+        json.append(", \"fastestIsClear\": ").append(c.fastestIsClear);
+        json.append(",\n       \"preAnalysisNanos\": ").append(c.preAnalysisTimeNanos);
+        json.append(", \"chosenNanos\": ").append(c.chosenAlgorithmTimeNanos);
+        json.append(", \"totalWithPreAnalysisNanos\": ").append(c.totalTimeWithPreAnalysis);
+        json.append(", \"fastestNanos\": ").append(c.fastestAlgorithmTime);
+        json.append(", \"preAnalysisShareOfTotal\": ")
+                .append(number(c.totalTimeWithPreAnalysis == 0 ? 0.0
+                        : (double) c.preAnalysisTimeNanos / c.totalTimeWithPreAnalysis));
+        json.append(", \"preAnalysisAllocatedBytes\": ").append(c.preAnalysisAllocatedBytes);
+        json.append(",\n       \"preAnalysisSamples\": ")
+                .append(array(c.preAnalysisStats == null ? new long[0] : c.preAnalysisStats.samples()));
+        json.append(",\n       \"algorithms\": [");
+        boolean first = true;
+        for (String name : c.allAlgorithmNames) {
+            TimingStats stats = c.allAlgorithmStats.get(name);
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append("        {\"algorithm\": ").append(quote(name));
+            if (stats != null) {
+                appendStats(json, stats);
+            }
+            Long bytes = c.allAlgorithmAllocatedBytes.get(name);
+            json.append(", \"allocatedBytes\": ").append(bytes == null ? AllocationMeter.UNSUPPORTED : bytes);
+            json.append(", \"samples\": ").append(array(stats == null ? new long[0] : stats.samples())).append('}');
+        }
+        json.append(first ? "]}" : "\n       ]}");
+    }
+
+    private static void appendFeatures(StringBuilder json, String text, String pattern) {
+        json.append(", \"textLength\": ").append(text.length());
+        json.append(", \"patternLength\": ").append(pattern.length());
+        json.append(", \"repeatScore\": ").append(number(PatternProfile.of(pattern).repeatScore()));
+        json.append(", \"alphabetSize\": ").append(TextProfile.sample(text).alphabetSize());
+    }
+
+    private static void appendStats(StringBuilder json, TimingStats stats) {
+        json.append(", \"medianNanos\": ").append(stats.median());
+        json.append(", \"p90Nanos\": ").append(stats.p90());
+        json.append(", \"p99Nanos\": ").append(stats.p99());
+        json.append(", \"cv\": ").append(number(stats.cv()));
+        json.append(", \"ciLowNanos\": ").append(stats.ciLow());
+        json.append(", \"ciHighNanos\": ").append(stats.ciHigh());
+    }
+
+    private static String array(long[] values) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+
+    static String quote(String s) {
+        if (s == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // --- CSV ---
+
+    /**
+     * Write the results as CSV: a header row, then one row per (test, algorithm) of the
+     * runs (source "run") and of the pre-analysis comparisons (source "preanalysis").
+     */
+    public static void writeCsv(Path file, List<ManualTestRunner.TestExecutionResult> runs,
+                                List<PreAnalysisComparison.ComparisonResult> comparisons) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file)) {
+            out.write(String.join(",", CSV_COLUMNS));
+            out.write("\n");
+            for (ManualTestRunner.TestExecutionResult run : runs) {
+                TestCase test = run.testCase;
+                PatternProfile profile = PatternProfile.of(test.getPattern());
+                int sigma = TextProfile.sample(test.getText()).alphabetSize();
+                String fastest = ManualTestRunner.findFastest(run);
+                for (ManualTestRunner.AlgorithmTestResult alg : run.algorithmResults.values()) {
+                    if (!alg.implemented) {
+                        continue;
+                    }
+                    List<String> row = new ArrayList<>();
+                    row.add("run");
+                    row.add(test.getName());
+                    row.add(alg.algorithmName);
+                    row.add(Integer.toString(test.getText().length()));
+                    row.add(Integer.toString(test.getPattern().length()));
+                    row.add(csvNumber(profile.repeatScore()));
+                    row.add(Integer.toString(sigma));
+                    row.add(Boolean.toString(alg.passed));
+                    row.add(Boolean.toString(alg.timedOut));
+                    addStats(row, alg.stats);
+                    row.add(alg.allocatedBytes < 0 ? "" : Long.toString(alg.allocatedBytes));
+                    addOps(row, alg.ops);
+                    row.add("");
+                    row.add(fastest == null ? "" : fastest);
+                    row.add("");
+                    row.add("");
+                    row.add("");
+                    row.add(samples(alg.allRunTimes));
+                    writeRow(out, row);
+                }
+            }
+            for (PreAnalysisComparison.ComparisonResult c : comparisons) {
+                for (String name : c.allAlgorithmNames) {
+                    TimingStats stats = c.allAlgorithmStats.get(name);
+                    Long bytes = c.allAlgorithmAllocatedBytes.get(name);
+                    List<String> row = new ArrayList<>();
+                    row.add("preanalysis");
+                    row.add(c.testCaseName);
+                    row.add(name);
+                    row.add(Integer.toString(c.textLength));
+                    row.add(Integer.toString(c.patternLength));
+                    row.add("");
+                    row.add("");
+                    row.add("");
+                    row.add("");
+                    addStats(row, stats);
+                    row.add(bytes == null || bytes < 0 ? "" : Long.toString(bytes));
+                    addOps(row, null);
+                    row.add(c.chosenAlgorithm);
+                    row.add(c.fastestAlgorithm);
+                    row.add(Boolean.toString(c.preAnalysisChoseFastest));
+                    row.add(Long.toString(c.preAnalysisTimeNanos));
+                    row.add(c.preAnalysisAllocatedBytes < 0 ? "" : Long.toString(c.preAnalysisAllocatedBytes));
+                    row.add(samples(stats == null ? new long[0] : stats.samples()));
+                    writeRow(out, row);
+                }
+            }
+        }
+    }
+
+    private static void addStats(List<String> row, TimingStats stats) {
+        if (stats == null) {
+            for (int i = 0; i < 6; i++) {
+                row.add("");
+            }
+            return;
+        }
+        row.add(Long.toString(stats.median()));
+        row.add(Long.toString(stats.p90()));
+        row.add(Long.toString(stats.p99()));
+        row.add(csvNumber(stats.cv()));
+        row.add(Long.toString(stats.ciLow()));
+        row.add(Long.toString(stats.ciHigh()));
+    }
+
+    private static void addOps(List<String> row, OpCounters ops) {
+        if (ops == null) {
+            for (int i = 0; i < 6; i++) {
+                row.add("");
+            }
+            return;
+        }
+        row.add(Long.toString(ops.getComparisons()));
+        row.add(Long.toString(ops.getShifts()));
+        row.add(csvNumber(ops.getAverageShift()));
+        row.add(Long.toString(ops.getLpsFallbacks()));
+        row.add(Long.toString(ops.getHashHits()));
+        row.add(Long.toString(ops.getSpuriousHits()));
+    }
+
+    private static String samples(long[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (long v : values) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(v);
+        }
+        return sb.toString();
+    }
+
+    private static String csvNumber(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "" : String.format(Locale.ROOT, "%.6g", value);
+    }
+
+    private static void writeRow(Writer out, List<String> row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(csvField(row.get(i)));
+        }
+        out.write('\n');
+    }
+
+    /**
+     * RFC 4180 quoting: fields containing a comma, quote or line break are quoted.
+     */
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
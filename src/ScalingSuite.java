@@ -0,0 +1,442 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Complexity scaling: how each engine's time grows with the text length n (pattern
+ * length fixed) and with the pattern length m (text length fixed), per input class.
+ *
+ * Each curve is a sweep over sizes a factor of 4 apart on one input class: random
+ * DNA, exactly periodic text (a pattern made of the same root matches at every
+ * period), the worst case for Naive ("aa...ab" in "aaa...a") and the best case for
+ * Boyer-Moore (a pattern symbol the text never contains). All engines are warmed up
+ * on every class first, so the smallest sizes are not timed in the interpreter. The
+ * empirical exponent is the least-squares slope of log(time) against log(size), so
+ * 1.0 means linear and 0.0 means independent of that size. A curve departs from the
+ * expected complexity when its exponent lies more than TOLERANCE outside the range
+ * in expected(); a slope above the range is the interesting case, e.g. an engine
+ * whose time grows with m on periodic text where it should stay linear in n.
+ *
+ * Index engines are measured twice: the query against a cached index, and the index
+ * build (one cold call after clearing TextIndexCache). GoCrazy's hot-text index is
+ * switched off for the run, even under --auto-index, so that its curves show the
+ * scanning engine it picks.
+ */
+public class ScalingSuite {
+    public static final int DEFAULT_MAX_N = 1 << 20;
+
+    static final int MIN_N = 1 << 12;
+    static final int FIXED_M = 16;
+    static final int M_SWEEP_N = 1 << 18;
+    static final int[] M_VALUES = {8, 32, 128, 512, 2048};
+    static final int SIZE_FACTOR = 4;
+
+    /** Allowed distance of a fitted exponent from the expected range */
+    static final double TOLERANCE = 0.25;
+
+    /** Points whose first timed call is slower than this are timed as the median of SLOW_RUNS calls */
+    static final long SLOW_POINT_NANOS = 10_000_000L;
+    static final int SLOW_RUNS = 3;
+
+    static final int WARMUP_N = 1 << 14;
+
+    /** Root repeated by the periodic input class */
+    static final String PERIODIC_ROOT = "ACG";
+
+    enum InputClass {
+        RANDOM, PERIODIC, WORST_CASE_NAIVE, BEST_CASE_BM;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+        /**
+         * Input of this class with text length n and pattern length m.
+         */
+        TestCase generate(int n, int m, long seed) {
+            switch (this) {
+                case PERIODIC: {
+                    String text = repeat(PERIODIC_ROOT, n);
+                    String pattern = repeat(PERIODIC_ROOT, m);
+                    return new TestCase("scaling_periodic_n" + n + "_m" + m, text, pattern,
+                            WorkloadGenerator.reference(text, pattern));
+                }
+                case WORST_CASE_NAIVE:
+                    return generate(WorkloadGenerator.Structure.ADVERSARIAL, n, m, seed);
+                case BEST_CASE_BM:
+                    return generate(WorkloadGenerator.Structure.DISJOINT, n, m, seed);
+                default:
+                    // No planted matches, so occurrences do not grow with n
+                    return generate(WorkloadGenerator.Structure.RANDOM, n, m, seed);
+            }
+        }
+
+        private static TestCase generate(WorkloadGenerator.Structure structure, int n, int m, long seed) {
+            return WorkloadGenerator.generate(new WorkloadGenerator.Spec(
+                    n, m, WorkloadGenerator.Alphabet.DNA, structure, 0.0, seed));
+        }
+
+        private static String repeat(String root, int length) {
+            StringBuilder sb = new StringBuilder(length);
+            while (sb.length() < length) {
+                sb.append(root, 0, Math.min(root.length(), length - sb.length()));
+            }
+            return sb.toString();
+        }
+    }
+
+    enum Axis {
+        N, M
+    }
+
+    /**
+     * Times of one engine on one input class along one axis.
+     */
+    static final class Curve {
+        final String engine;
+        final boolean build;    // Index build time rather than query time
+        final InputClass inputClass;
+        final Axis axis;
+        final int[] sizes;
+        final int fixed;        // m on the n axis, n on the m axis
+        final long[] times;     // Nanoseconds; -1 where the engine failed
+        double exponent = Double.NaN;
+
+        Curve(String engine, boolean build, InputClass inputClass, Axis axis, int[] sizes,
+              int fixed) {
+            this.engine = engine;
+            this.build = build;
+            this.inputClass = inputClass;
+            this.axis = axis;
+            this.sizes = sizes;
+            this.fixed = fixed;
+            this.times = new long[sizes.length];
+        }
+
+        String label() {
+            return build ? engine + " (build)" : engine;
+        }
+
+        /**
+         * @return Expected exponent range, or null if there is no expectation for this engine
+         */
+        double[] expected() {
+            return ScalingSuite.expected(engine, build, inputClass, axis);
+        }
+
+        /**
+         * @return +1 if the exponent is above the expected range, -1 if below, 0 if within it or unknown
+         */
+        int departure() {
+            double[] range = expected();
+            if (range == null || Double.isNaN(exponent)) {
+                return 0;
+            }
+            if (exponent > range[1] + TOLERANCE) {
+                return 1;
+            }
+            return exponent < range[0] - TOLERANCE ? -1 : 0;
+        }
+    }
+
+    /**
+     * Expected exponent range [low, high] of an engine's time in n or m on an input
+     * class, from its complexity: scanning engines are linear in n; in m, Naive is
+     * O(nm) wherever alignments run long, Rabin-Karp verifies every occurrence in
+     * O(m), Boyer-Moore skips up to m characters, and KMP and GoCrazy stay O(n + m).
+     * Index queries cost O(m log n + occ), index builds O(n).
+     */
+    static double[] expected(String engine, boolean build, InputClass inputClass, Axis axis) {
+        boolean periodic = inputClass == InputClass.PERIODIC;
+        boolean index = isIndexEngine(engine);
+        if (axis == Axis.N) {
+            if (build) {
+                return range(1, 1);
+            }
+            // Queries only grow with n through the occurrences they report
+            return index && !periodic ? range(0, 0) : range(1, 1);
+        }
+        if (index) {
+            return range(0, 1);
+        }
+        switch (engine) {
+            case "Naive":
+                return periodic || inputClass == InputClass.WORST_CASE_NAIVE ? range(1, 1) : range(0, 0);
+            case "KMP":
+                return range(0, 0);
+            case "RabinKarp":
+                return periodic ? range(1, 1) : range(0, 0);
+            case "BoyerMoore":
+            case "GoCrazy":
+                switch (inputClass) {
+                    case RANDOM:
+                        return range(-1, 0);
+                    case BEST_CASE_BM:
+                        return range(-1, -1);
+                    default:
+                        return range(0, 0);
+                }
+            default:
+                return null;
+        }
+    }
+
+    private static double[] range(double low, double high) {
+        return new double[] {low, high};
+    }
+
+    static boolean isIndexEngine(String engine) {
+        return engine.equals("SuffixArraySearch") || engine.equals("FMIndexSearch")
+                || engine.equals("SuffixAutomatonSearch");
+    }
+
+    /**
+     * Sweep n (m = FIXED_M) and m (n = min(maxN, M_SWEEP_N)) for every registered
+     * engine and input class.
+     * @param seed Seed for the generated inputs
+     * @param maxN Largest text length of the n sweep
+     * @return All curves with their fitted exponents
+     */
+    public static List<Curve> run(long seed, int maxN) {
+        List<String> engines = new ArrayList<>(new TreeSet<>(engineNames()));
+        List<Integer> nSizes = new ArrayList<>();
+        for (long n = MIN_N; n <= maxN; n *= SIZE_FACTOR) {
+            nSizes.add((int) n);
+        }
+        int mSweepN = Math.min(maxN, M_SWEEP_N);
+        List<Integer> mSizes = new ArrayList<>();
+        for (int m : M_VALUES) {
+            if (m <= mSweepN / 4) {
+                mSizes.add(m);
+            }
+        }
+
+        TextIndexCache cache = TextIndexCache.shared();
+        int buildThreshold = cache.getBuildThreshold();
+        cache.setBuildThreshold(Integer.MAX_VALUE);
+        List<Curve> curves = new ArrayList<>();
+        try {
+            warmUp(engines, seed);
+            for (InputClass inputClass : InputClass.values()) {
+                curves.addAll(sweep(engines, inputClass, Axis.N, toArray(nSizes), FIXED_M, seed));
+                curves.addAll(sweep(engines, inputClass, Axis.M, toArray(mSizes), mSweepN, seed));
+            }
+        } finally {
+            cache.setBuildThreshold(buildThreshold);
+            cache.clear();
+        }
+        for (Curve curve : curves) {
+            curve.exponent = fitExponent(curve.sizes, curve.times);
+        }
+        return curves;
+    }
+
+    private static List<String> engineNames() {
+        List<String> names = new ArrayList<>();
+        for (Class<? extends Solution> algorithmClass : Solution.SUBCLASSES) {
+            names.add(algorithmClass.getSimpleName());
+        }
+        return names;
+    }
+
+    /**
+     * Get every engine, and every index build, JIT-compiled on every input class.
+     */
+    private static void warmUp(List<String> engines, long seed) {
+        for (InputClass inputClass : InputClass.values()) {
+            TestCase test = inputClass.generate(WARMUP_N, FIXED_M, seed);
+            for (String engine : engines) {
+                Solution solution = SolutionFactory.getInstance(engine);
+                searchTime(solution, test);
+                if (isIndexEngine(engine)) {
+                    buildTime(solution, test);
+                    buildTime(solution, test);
+                }
+            }
+            TextIndexCache.shared().clear();
+        }
+        System.out.println("  warm-up done");
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Time every engine at every size of one axis.
+     * @param other The fixed length: m for the n axis, n for the m axis
+     */
+    private static List<Curve> sweep(List<String> engines, InputClass inputClass, Axis axis,
+                                     int[] sizes, int other, long seed) {
+        List<Curve> curves = new ArrayList<>();
+        for (String engine : engines) {
+            curves.add(new Curve(engine, false, inputClass, axis, sizes, other));
+            if (axis == Axis.N && isIndexEngine(engine)) {
+                curves.add(new Curve(engine, true, inputClass, axis, sizes, other));
+            }
+        }
+        for (int i = 0; i < sizes.length; i++) {
+            int n = axis == Axis.N ? sizes[i] : other;
+            int m = axis == Axis.N ? other : sizes[i];
+            TestCase test = inputClass.generate(n, m, seed);
+            for (Curve curve : curves) {
+                Solution solution = SolutionFactory.getInstance(curve.engine);
+                curve.times[i] = curve.build ? buildTime(solution, test) : searchTime(solution, test);
+            }
+            TextIndexCache.shared().clear();
+            System.out.printf("  %-17s %s = %s done%n", inputClass.label(),
+                    axis == Axis.N ? "n" : "m", WorkloadGenerator.formatSize(sizes[i]));
+        }
+        return curves;
+    }
+
+    /**
+     * Steady-state time of one search (an index engine's index is built by the first,
+     * untimed call), or -1 if the engine fails or returns a wrong result.
+     */
+    private static long searchTime(Solution solution, TestCase test) {
+        String text = test.getText();
+        String pattern = test.getPattern();
+        try {
+            if (!solution.solveRecorded(text, pattern).equals(test.getExpectedResult())) {
+                return -1;
+            }
+            long start = System.nanoTime();
+            solution.solveRecorded(text, pattern);
+            long first = System.nanoTime() - start;
+            if (first < SLOW_POINT_NANOS) {
+                return TimingStats.measure(() -> solution.solveRecorded(text, pattern)).median();
+            }
+            long[] samples = new long[SLOW_RUNS];
+            samples[0] = first;
+            for (int i = 1; i < samples.length; i++) {
+                start = System.nanoTime();
+                solution.solveRecorded(text, pattern);
+                samples[i] = System.nanoTime() - start;
+            }
+            return TimingStats.of(samples).median();
+        } catch (RuntimeException | OutOfMemoryError e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Median time of SLOW_RUNS cold calls of an index engine, each after clearing the index cache.
+     */
+    private static long buildTime(Solution solution, TestCase test) {
+        long[] samples = new long[SLOW_RUNS];
+        try {
+            for (int i = 0; i < samples.length; i++) {
+                TextIndexCache.shared().clear();
+                long start = System.nanoTime();
+                solution.solveRecorded(test.getText(), test.getPattern());
+                samples[i] = System.nanoTime() - start;
+            }
+        } catch (RuntimeException | OutOfMemoryError e) {
+            return -1;
+        }
+        return TimingStats.of(samples).median();
+    }
+
+    /**
+     * Least-squares slope of ln(time) against ln(size) over the points that have a
+     * time, or NaN if fewer than three do.
+     */
+    static double fitExponent(int[] sizes, long[] times) {
+        int count = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            if (times[i] > 0) {
+                count++;
+                sumX += Math.log(sizes[i]);
+                sumY += Math.log(times[i]);
+            }
+        }
+        if (count < 3) {
+            return Double.NaN;
+        }
+        double meanX = sumX / count;
+        double meanY = sumY / count;
+        double sxy = 0;
+        double sxx = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            if (times[i] > 0) {
+                double dx = Math.log(sizes[i]) - meanX;
+                sxy += dx * (Math.log(times[i]) - meanY);
+                sxx += dx * dx;
+            }
+        }
+        return sxy / sxx;
+    }
+
+    /**
+     * Print one table per axis: the time at every size, the fitted exponent, the
+     * expected range, and whether the curve departs from it.
+     */
+    public static void printCurves(List<Curve> curves) {
+        for (Axis axis : Axis.values()) {
+            List<Curve> onAxis = new ArrayList<>();
+            for (Curve curve : curves) {
+                if (curve.axis == axis) {
+                    onAxis.add(curve);
+                }
+            }
+            if (onAxis.isEmpty()) {
+                continue;
+            }
+            int[] sizes = onAxis.get(0).sizes;
+            int width = 19 + 32 + sizes.length * 11 + 34;
+            System.out.println("\n" + "=".repeat(width));
+            System.out.println(axis == Axis.N
+                    ? "SCALING - time (μs) vs text length n, pattern length m = " + onAxis.get(0).fixed
+                    : "SCALING - time (μs) vs pattern length m, text length n = "
+                            + WorkloadGenerator.formatSize(onAxis.get(0).fixed));
+            System.out.println("=".repeat(width));
+            System.out.printf("%-19s%-32s", "Input", "Engine");
+            for (int size : sizes) {
+                System.out.printf("%11s", (axis == Axis.N ? "n=" : "m=") + WorkloadGenerator.formatSize(size));
+            }
+            System.out.printf("%10s %10s  %s%n", "Exponent", "Expected", "");
+            System.out.println("-".repeat(width));
+            for (Curve curve : onAxis) {
+                System.out.printf("%-19s%-32s", curve.inputClass.label(), curve.label());
+                for (long t : curve.times) {
+                    System.out.printf("%11s", t < 0 ? "✗ FAIL" : String.format("%.1f", t / 1000.0));
+                }
+                double[] range = curve.expected();
+                String expected = range == null ? "-"
+                        : range[0] == range[1] ? String.format("%.0f", range[0])
+                        : String.format("%.0f..%.0f", range[0], range[1]);
+                String status = curve.departure() > 0 ? "▲ grows faster than expected"
+                        : curve.departure() < 0 ? "▼ grows slower than expected" : "";
+                System.out.printf("%10s %10s  %s%n",
+                        Double.isNaN(curve.exponent) ? "n/a" : String.format("%.2f", curve.exponent), expected, status);
+            }
+            System.out.println("=".repeat(width));
+        }
+
+        List<Curve> worse = new ArrayList<>();
+        for (Curve curve : curves) {
+            if (curve.departure() > 0) {
+                worse.add(curve);
+            }
+        }
+        if (worse.isEmpty()) {
+            System.out.println("\n✓ Every engine scales as expected (within ±" + TOLERANCE + ")");
+            return;
+        }
+        System.out.println("\n⚠ " + worse.size() + " curve(s) grow faster than their expected complexity:");
+        for (Curve curve : worse) {
+            double[] range = curve.expected();
+            System.out.printf("  %-32s on %-17s: time ~ %s^%.2f, expected at most %s^%.0f%n", curve.label(),
+                    curve.inputClass.label(), curve.axis == Axis.N ? "n" : "m",
+                    curve.exponent, curve.axis == Axis.N ? "n" : "m", range[1]);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Deadline and cancellation token for a single search.
+ *
+ * Engines check the budget cooperatively: they fetch current() once when a search
+ * starts and call shouldStop() in their main loop, which only looks at the clock
+ * once per roughly CHECK_WORK character comparisons (checkMask() turns that into an
+ * iteration interval from the worst-case cost of one iteration, e.g. m for Naive).
+ * So the deadline is overshot by a bounded amount of work whatever the pattern
+ * length. When the budget runs out a scanning engine stops and returns the matches
+ * found so far. Work with no useful partial result, such as an index build or an
+ * index query, calls checkpoint() in its loops and between its phases instead; it
+ * throws Exhausted, and the index engines then return no matches. Use
+ * Solution.solveWithin() to run a search under a budget; plain Solve() calls run
+ * without one and pay only a null check per interval.
+ *
+ * cancel() may be called from any thread. A budget belongs to one search and is
+ * not reusable.
+ */
+public final class SearchBudget {
+    /** Character comparisons an engine may do between two clock checks */
+    public static final int CHECK_WORK = 1 << 16;
+
+    private static final ThreadLocal<SearchBudget> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+    private boolean exhausted;  // Written and read by the searching thread only
+
+    private SearchBudget(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @param millis Time allowed from now
+     * @return A budget that expires after the given time
+     */
+    public static SearchBudget ofMillis(long millis) {
+        return ofNanos(millis * 1_000_000L);
+    }
+
+    /**
+     * @param nanos Time allowed from now
+     * @return A budget that expires after the given time
+     */
+    public static SearchBudget ofNanos(long nanos) {
+        return new SearchBudget(System.nanoTime() + nanos);
+    }
+
+    /**
+     * @return A budget that only ends through cancel()
+     */
+    public static SearchBudget unlimited() {
+        return new SearchBudget(Long.MAX_VALUE);
+    }
+
+    /**
+     * Ask the search to stop at its next check. Safe to call from another thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true once an engine has stopped early because of this budget
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Check the clock and the cancellation flag now.
+     * @return true if the search must stop
+     */
+    boolean expired() {
+        if (cancelled || (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0)) {
+            exhausted = true;
+        }
+        return exhausted;
+    }
+
+    /**
+     * Iteration mask for shouldStop, so that the clock is read about every CHECK_WORK comparisons.
+     * @param costPerIteration Worst-case character comparisons in one loop iteration
+     * @return A power of two minus one
+     */
+    static int checkMask(int costPerIteration) {
+        return Integer.highestOneBit(Math.max(1, CHECK_WORK / Math.max(1, costPerIteration))) - 1;
+    }
+
+    /**
+     * Cheap per-iteration check for engine loops.
+     * @param budget The search's budget, or null when running without one
+     * @param iteration Loop counter; the clock is only read when (iteration & mask) == 0
+     * @param mask Value from checkMask()
+     * @return true if the search must stop
+     */
+    static boolean shouldStop(SearchBudget budget, long iteration, int mask) {
+        return (iteration & mask) == 0 && budget != null && budget.expired();
+    }
+
+    /**
+     * Like shouldStop, for work that cannot stop with a partial result.
+     * @param budget The search's budget, or null when running without one
+     * @param iteration Loop counter; the clock is only read when (iteration & mask) == 0
+     * @param mask Value from checkMask(), or 0 to check now (between phases)
+     * @throws Exhausted if the search must stop
+     */
+    static void checkpoint(SearchBudget budget, long iteration, int mask) {
+        if (shouldStop(budget, iteration, mask)) {
+            throw new Exhausted();
+        }
+    }
+
+    /**
+     * Thrown by checkpoint() to abandon work that has no partial result. Carries no
+     * stack trace, since it is expected and caught by the engine that started the work.
+     */
+    static final class Exhausted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Exhausted() {
+            super("Search budget exhausted", null, false, false);
+        }
+    }
+
+    /**
+     * @return The budget of the search running on this thread, or null
+     */
+    static SearchBudget current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Make budget the current one for this thread.
+     * @return The previous budget, to be passed to restore()
+     */
+    static SearchBudget install(SearchBudget budget) {
+        SearchBudget previous = CURRENT.get();
+        CURRENT.set(budget);
+        return previous;
+    }
+
+    static void restore(SearchBudget previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for one search, emitted by Solution.solveRecorded()
+ * (and so by solveWithin() and the test runners) and by Solution.solveEncoded().
+ *
+ * Only searches slower than the threshold are recorded; lower it in a recording
+ * setting, e.g. -XX:StartFlightRecording:settings=... with
+ * "stringmatching.Search#threshold=1 ms". While no recording is running the event is
+ * never committed and costs a begin/end pair per search.
+ */
+@Name("stringmatching.Search")
+@Label("String Search")
+@Category({"String Matching"})
+@Description("A search slower than the threshold, with the engine that actually scanned the text")
+@Threshold("10 ms")
+@StackTrace(false)
+class SearchEvent extends jdk.jfr.Event {
+    @Label("Algorithm")
+    @Description("Engine the search was called on")
+    String algorithm;
+
+    @Label("Engine")
+    @Description("Engine that ran the search; differs from Algorithm when a hybrid such as GoCrazy delegated")
+    String engine;
+
+    @Label("Text Length")
+    int textLength;
+
+    @Label("Pattern Length")
+    int patternLength;
+
+    @Label("Match Count")
+    long matchCount;
+
+    @Label("Completed")
+    @Description("False if the search ran out of its time budget or was cancelled")
+    boolean completed;
+}
@@ -0,0 +1,45 @@
+/**
+ * Outcome of a search run under a SearchBudget: the matches found and whether the
+ * search finished. A search that stopped early returns the matches it had found,
+ * which for the scanning engines are all matches left of where the scan stopped.
+ */
+public final class SearchResult {
+    public enum Status {
+        COMPLETE,
+        TIMED_OUT,
+        CANCELLED
+    }
+
+    private final String result;
+    private final Status status;
+    private final long elapsedNanos;
+
+    SearchResult(String result, Status status, long elapsedNanos) {
+        this.result = result;
+        this.status = status;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Comma-separated indices in the Solve format (possibly partial)
+     */
+    public String getResult() {
+        return result;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isComplete() {
+        return status == Status.COMPLETE;
+    }
+
+    public boolean isTimedOut() {
+        return status == Status.TIMED_OUT;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
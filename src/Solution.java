@@ -1,10 +1,12 @@
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.function.IntConsumer;
 
 public abstract class Solution {
-    static final Set<Class<? extends Solution>> SUBCLASSES = new HashSet<>();
+    // Registration order, so every run visits the engines in the same order
+    static final Set<Class<? extends Solution>> SUBCLASSES = new LinkedHashSet<>();
 
     public Solution(){
         // Constructor
@@ -18,6 +20,163 @@ public abstract class Solution {
      */
     public abstract String Solve(String text, String pattern);
 
+    /**
+     * Solve, recorded as a SearchEvent when Java Flight Recorder is running and the
+     * search is slower than the event's threshold. Callers that want their searches
+     * visible to JFR use this instead of calling Solve directly.
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @return Same as Solve
+     */
+    public final String solveRecorded(String text, String pattern) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        String result = solveTraced(text, pattern, event);
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, text, pattern, countMatches(result));
+        }
+        return result;
+    }
+
+    /**
+     * Solve on behalf of solveRecorded(). Engines that hand the work to another engine
+     * override this to set event.engine; the default just calls Solve.
+     */
+    protected String solveTraced(String text, String pattern, SearchEvent event) {
+        return Solve(text, pattern);
+    }
+
+    private void commit(SearchEvent event, String text, String pattern, long matchCount) {
+        SearchBudget budget = SearchBudget.current();
+        event.algorithm = getName();
+        if (event.engine == null) {
+            event.engine = event.algorithm;
+        }
+        event.textLength = text.length();
+        event.patternLength = pattern.length();
+        event.matchCount = matchCount;
+        event.completed = budget == null || !budget.isExhausted();
+        event.commit();
+    }
+
+    private static long countMatches(String result) {
+        if (result.isEmpty()) {
+            return 0;
+        }
+        long count = 1;
+        for (int i = 0; i < result.length(); i++) {
+            if (result.charAt(i) == ',') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Do any per-pattern preprocessing ahead of Solve, so that a following
+     * Solve(text, pattern) call can skip it. The default does nothing.
+     * @param pattern The pattern that is about to be searched for
+     */
+    public void prepare(String pattern) {
+    }
+
+    /**
+     * Run Solve under a time budget. The engine checks the budget periodically and,
+     * once it has run out or been cancelled, stops and returns the matches found so far.
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @param budget Deadline and cancellation token for this search
+     * @return The (possibly partial) result and whether the search completed
+     */
+    public SearchResult solveWithin(String text, String pattern, SearchBudget budget) {
+        SearchBudget previous = SearchBudget.install(budget);
+        long start = System.nanoTime();
+        try {
+            String result = solveRecorded(text, pattern);
+            SearchResult.Status status = !budget.isExhausted() ? SearchResult.Status.COMPLETE
+                    : budget.isCancelled() ? SearchResult.Status.CANCELLED
+                    : SearchResult.Status.TIMED_OUT;
+            return new SearchResult(result, status, System.nanoTime() - start);
+        } finally {
+            SearchBudget.restore(previous);
+        }
+    }
+
+    /**
+     * Stream the match positions into a collector instead of building the result
+     * String, so results larger than the heap can spill to disk. Scanning engines
+     * override this to report matches as they find them; the default runs Solve and
+     * parses its output.
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @param out Receives the match positions in ascending order
+     */
+    public void solveInto(String text, String pattern, MatchCollector out) {
+        String result = Solve(text, pattern);
+        if (result.isEmpty()) {
+            return;
+        }
+        int value = 0;
+        for (int i = 0; i < result.length(); i++) {
+            char c = result.charAt(i);
+            if (c == ',') {
+                out.accept(value);
+                value = 0;
+            } else {
+                value = value * 10 + (c - '0');
+            }
+        }
+        out.accept(value);
+    }
+
+    /**
+     * Solve and return the result in the compact MatchEncoding format (delta+varint
+     * or bitmap, whichever is smaller) instead of a comma-separated String.
+     * @param text The text to search in
+     * @param pattern The pattern to search for
+     * @return The encoded match positions
+     */
+    public byte[] solveEncoded(String text, String pattern) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        try (MatchCollector matches = new MatchCollector()) {
+            solveInto(text, pattern, matches);
+            event.end();
+            if (event.shouldCommit()) {
+                commit(event, text, pattern, matches.size());
+            }
+            return MatchEncoding.encode(matches);
+        }
+    }
+
+    /**
+     * Report every position 0..n, the result for the empty pattern, stopping early
+     * like the scans do if the current search's budget runs out.
+     * @param n Length of the text
+     * @param out Receives the positions in ascending order
+     */
+    protected static void reportAllPositions(int n, IntConsumer out) {
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(1);
+        for (int i = 0; i <= n; i++) {
+            if (SearchBudget.shouldStop(budget, i, checkMask)) {
+                return;
+            }
+            out.accept(i);
+        }
+    }
+
+    /**
+     * Check the budget of the current search once, before work that can only be
+     * stopped at its checkpoints (such as an index build).
+     * @return true if a budget is set and has run out or been cancelled
+     */
+    protected static boolean budgetExhausted() {
+        SearchBudget budget = SearchBudget.current();
+        return budget != null && budget.expired();
+    }
+
     /**
      * Helper method to convert list of indices to comma-separated string
      * @param indices List of indices where pattern was found
@@ -37,6 +196,25 @@ public abstract class Solution {
         return sb.toString();
     }
 
+    /**
+     * Helper method to convert an array of indices to comma-separated string
+     * @param indices Array of indices where pattern was found
+     * @return Comma-separated string of indices
+     */
+    protected String indicesToString(int[] indices) {
+        if (indices.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < indices.length; i++) {
+            sb.append(indices[i]);
+            if (i < indices.length - 1) {
+                sb.append(",");
+            }
+        }
+        return sb.toString();
+    }
+
     /**
      * Helper method to check if pattern matches text at given position
      * @param text The text to search in
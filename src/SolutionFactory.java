@@ -1,7 +1,12 @@
 import java.lang.reflect.Constructor;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SolutionFactory {
+    // One shared instance per algorithm; the engines keep no per-call state
+    private static final Map<String, Solution> INSTANCES = new ConcurrentHashMap<>();
+
      static void x(String[] args) {
         try {
             Set<Class<? extends Solution>> sb = Solution.SUBCLASSES;
@@ -16,4 +21,36 @@ public class SolutionFactory {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the shared instance of a registered algorithm by name.
+     * Reflection and the registry scan only happen the first time a name is requested.
+     * An engine that has not been loaded yet is loaded by name, which registers it.
+     * @param name Algorithm name, e.g. "KMP"
+     * @return The cached instance
+     * @throws IllegalArgumentException if no registered algorithm has that name
+     */
+    static Solution getInstance(String name) {
+        Solution solution = INSTANCES.get(name);
+        if (solution != null) {
+            return solution;
+        }
+        try {
+            Class.forName(name); // Runs the engine's static block, which adds it to SUBCLASSES
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Algorithm not found: " + name, e);
+        }
+        for (Class<? extends Solution> algorithmClass : Solution.SUBCLASSES) {
+            if (algorithmClass.getSimpleName().equals(name)) {
+                try {
+                    solution = algorithmClass.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Cannot instantiate " + name, e);
+                }
+                Solution existing = INSTANCES.putIfAbsent(name, solution);
+                return existing != null ? existing : solution;
+            }
+        }
+        throw new IllegalArgumentException("Algorithm not found: " + name);
+    }
+}
@@ -0,0 +1,347 @@
+import java.util.Arrays;
+
+/**
+ * Suffix array index over a fixed text.
+ *
+ * Construction uses SA-IS (induced sorting), which runs in O(n) time and stores
+ * the sorted suffixes in a single int[]. Queries binary-search the suffix array,
+ * so findAll costs O(m log n + occ) regardless of how many times it is called.
+ *
+ * The LCP array (Kasai et al.) is optional because it doubles the index size and
+ * plain findAll queries do not need it.
+ *
+ * Construction and findAll call SearchBudget.checkpoint() in their linear loops and
+ * between phases, so a search under a budget can abandon them.
+ */
+public class SuffixArray implements TextIndex {
+    private final String text;
+    private final int[] sa;
+    private int[] lcp;
+
+    public SuffixArray(String text) {
+        this(text, false);
+    }
+
+    /**
+     * @param text The text to index
+     * @param withLcp Also build the LCP array up front
+     */
+    public SuffixArray(String text, boolean withLcp) {
+        this.text = text;
+        this.sa = build(text);
+        if (withLcp) {
+            this.lcp = buildLcp(text, sa);
+        }
+    }
+
+    @Override
+    public int textLength() {
+        return text.length();
+    }
+
+    /**
+     * @return The sorted suffix start positions (not a copy)
+     */
+    public int[] suffixArray() {
+        return sa;
+    }
+
+    /**
+     * lcp[i] is the length of the longest common prefix of the suffixes at sa[i-1]
+     * and sa[i]; lcp[0] is 0. Built on first use if the index was created without it.
+     * @return The LCP array (not a copy)
+     */
+    public synchronized int[] lcpArray() {
+        if (lcp == null) {
+            lcp = buildLcp(text, sa);
+        }
+        return lcp;
+    }
+
+    @Override
+    public int[] findAll(String pattern) {
+        if (pattern.isEmpty()) {
+            return TextIndex.allPositions(text.length());
+        }
+        int lo = lowerBound(pattern);
+        int hi = upperBound(pattern, lo);
+        int[] positions = Arrays.copyOfRange(sa, lo, hi);
+        TextIndex.sortPositions(positions, text.length());
+        return positions;
+    }
+
+    @Override
+    public int count(String pattern) {
+        if (pattern.isEmpty()) {
+            return text.length() + 1;
+        }
+        int lo = lowerBound(pattern);
+        return upperBound(pattern, lo) - lo;
+    }
+
+    @Override
+    public boolean retainsText() {
+        return true; // Queries compare the pattern against suffixes of the text
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = 16 + 4L * sa.length;
+        if (lcp != null) {
+            bytes += 16 + 4L * lcp.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * First suffix rank whose m-character prefix is >= pattern
+     */
+    private int lowerBound(String pattern) {
+        int lo = 0;
+        int hi = sa.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareSuffix(sa[mid], pattern) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * First suffix rank (searching from lo) whose m-character prefix is > pattern
+     */
+    private int upperBound(String pattern, int lo) {
+        int hi = sa.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareSuffix(sa[mid], pattern) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Compare the suffix starting at pos against the pattern, looking at no more
+     * than pattern.length() characters.
+     * @return Negative, zero (pattern is a prefix of the suffix) or positive
+     */
+    private int compareSuffix(int pos, String pattern) {
+        int n = text.length();
+        int m = pattern.length();
+        for (int k = 0; k < m; k++) {
+            if (pos + k == n) {
+                return -1; // Suffix ran out first, so it sorts before the pattern
+            }
+            if (OpCounters.ENABLED) {
+                OpCounters.current().comparisons++;
+            }
+            int diff = text.charAt(pos + k) - pattern.charAt(k);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    // --- Construction ---
+
+    /**
+     * Build the suffix array of a text with SA-IS.
+     * @param text The text to sort the suffixes of
+     * @return Suffix start positions in lexicographic order
+     */
+    static int[] build(String text) {
+        int n = text.length();
+        int[] s = new int[n];
+        int upper = 0;
+        for (int i = 0; i < n; i++) {
+            s[i] = text.charAt(i);
+            upper = Math.max(upper, s[i]);
+        }
+        return saIs(s, upper, SearchBudget.current());
+    }
+
+    /**
+     * Induced-sorting suffix array construction.
+     * @param s Input string with every value in [0, upper]
+     * @param upper Largest symbol value
+     * @param budget Budget of the current search, or null
+     */
+    private static int[] saIs(int[] s, int upper, SearchBudget budget) {
+        int n = s.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        if (n == 1) {
+            return new int[] {0};
+        }
+        if (n == 2) {
+            return s[0] < s[1] ? new int[] {0, 1} : new int[] {1, 0};
+        }
+
+        int[] sa = new int[n];
+        // ls[i] is true for S-type suffixes (suffix i < suffix i+1)
+        boolean[] ls = new boolean[n];
+        for (int i = n - 2; i >= 0; i--) {
+            ls[i] = (s[i] == s[i + 1]) ? ls[i + 1] : (s[i] < s[i + 1]);
+        }
+
+        SearchBudget.checkpoint(budget, 0, 0);
+
+        // Bucket boundaries: sumL[c] is the start of bucket c, sumS[c] the start of its S-part
+        int[] sumL = new int[upper + 2];
+        int[] sumS = new int[upper + 2];
+        for (int i = 0; i < n; i++) {
+            if (!ls[i]) {
+                sumS[s[i]]++;
+            } else {
+                sumL[s[i] + 1]++;
+            }
+        }
+        for (int i = 0; i <= upper; i++) {
+            sumS[i] += sumL[i];
+            if (i < upper) {
+                sumL[i + 1] += sumS[i];
+            }
+        }
+
+        SearchBudget.checkpoint(budget, 0, 0);
+        int[] lmsMap = new int[n + 1];
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lmsMap[i] = m++;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1, k = 0; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lms[k++] = i;
+            }
+        }
+
+        SearchBudget.checkpoint(budget, 0, 0);
+        induce(s, sa, ls, sumL, sumS, lms, upper, budget);
+
+        if (m > 0) {
+            SearchBudget.checkpoint(budget, 0, 0);
+            int[] sortedLms = new int[m];
+            int k = 0;
+            for (int v : sa) {
+                if (lmsMap[v] != -1) {
+                    sortedLms[k++] = v;
+                }
+            }
+
+            // Name the LMS substrings; equal substrings get equal names
+            SearchBudget.checkpoint(budget, 0, 0);
+            int[] recS = new int[m];
+            int recUpper = 0;
+            recS[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = (lmsMap[l] + 1 < m) ? lms[lmsMap[l] + 1] : n;
+                int endR = (lmsMap[r] + 1 < m) ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL && s[l] == s[r]) {
+                        l++;
+                        r++;
+                    }
+                    if (l == n || s[l] != s[r]) {
+                        same = false;
+                    }
+                }
+                if (!same) {
+                    recUpper++;
+                }
+                recS[lmsMap[sortedLms[i]]] = recUpper;
+            }
+
+            // Recurse on the reduced string to get the true LMS order
+            SearchBudget.checkpoint(budget, 0, 0);
+            int[] recSa = saIs(recS, recUpper, budget);
+            for (int i = 0; i < m; i++) {
+                sortedLms[i] = lms[recSa[i]];
+            }
+            induce(s, sa, ls, sumL, sumS, sortedLms, upper, budget);
+        }
+        return sa;
+    }
+
+    /**
+     * Place the LMS suffixes, then induce the L-type and S-type suffixes from them.
+     */
+    private static void induce(int[] s, int[] sa, boolean[] ls, int[] sumL, int[] sumS, int[] lms, int upper,
+                               SearchBudget budget) {
+        int n = s.length;
+        int checkMask = SearchBudget.checkMask(1);
+        Arrays.fill(sa, -1);
+        int[] buf = new int[upper + 2];
+
+        System.arraycopy(sumS, 0, buf, 0, upper + 1);
+        for (int d : lms) {
+            if (d == n) {
+                continue;
+            }
+            sa[buf[s[d]]++] = d;
+        }
+
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        sa[buf[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            SearchBudget.checkpoint(budget, i, checkMask);
+            int v = sa[i];
+            if (v >= 1 && !ls[v - 1]) {
+                sa[buf[s[v - 1]]++] = v - 1;
+            }
+        }
+
+        System.arraycopy(sumL, 0, buf, 0, upper + 2);
+        for (int i = n - 1; i >= 0; i--) {
+            SearchBudget.checkpoint(budget, i, checkMask);
+            int v = sa[i];
+            if (v >= 1 && ls[v - 1]) {
+                sa[--buf[s[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+
+    /**
+     * Kasai's linear-time LCP construction.
+     */
+    private static int[] buildLcp(String text, int[] sa) {
+        int n = sa.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (rank[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            while (i + h < n && j + h < n && text.charAt(i + h) == text.charAt(j + h)) {
+                h++;
+            }
+            lcp[rank[i]] = h;
+            if (h > 0) {
+                h--;
+            }
+        }
+        return lcp;
+    }
+}
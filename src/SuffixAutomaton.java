@@ -0,0 +1,370 @@
+import java.util.Arrays;
+
+/**
+ * Suffix automaton (DAWG) over a fixed text.
+ *
+ * contains and count walk the automaton from the root, so they cost O(m) (O(m log k)
+ * with sparse transitions) no matter how long the text is. Endpos sizes are
+ * precomputed at build time; findAll enumerates the suffix-link subtree of the
+ * matched state and costs O(m + occ log occ).
+ *
+ * After construction the transitions are frozen into primitive arrays: a dense
+ * state x symbol table when the text alphabet is small, otherwise per-state sorted
+ * label ranges searched by binary search.
+ *
+ * Construction and findAll call SearchBudget.checkpoint() in their loops and between
+ * phases, so a search under a budget can abandon them.
+ */
+public class SuffixAutomaton implements TextIndex {
+    /** Use the dense transition table for alphabets up to this size */
+    static final int DENSE_ALPHABET_LIMIT = 16;
+
+    private final int n;
+    private final int stateCount;
+    private final char[] alphabet;      // Sorted distinct text characters
+
+    // Dense layout: next[state * alphabet.length + slot], -1 if absent
+    private final int[] denseNext;
+
+    // Sparse layout: edges of state s are [edgeStart[s], edgeStart[s+1]), sorted by label
+    private final int[] edgeStart;
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+
+    private final int[] endposCount;
+    private final int[] firstEnd;       // End position of the first occurrence; negative (-1 - pos) for clones
+    private final int[] childStart;     // Suffix-link tree in CSR form
+    private final int[] children;
+
+    public SuffixAutomaton(String text) {
+        this.n = text.length();
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(1);
+        Builder builder = new Builder(n);
+        for (int i = 0; i < n; i++) {
+            SearchBudget.checkpoint(budget, i, checkMask);
+            builder.extend(text.charAt(i));
+        }
+        SearchBudget.checkpoint(budget, 0, 0);
+        this.stateCount = builder.size;
+        this.alphabet = builder.alphabet();
+
+        if (alphabet.length <= DENSE_ALPHABET_LIMIT) {
+            this.denseNext = builder.denseTransitions(alphabet);
+            this.edgeStart = null;
+            this.edgeLabel = null;
+            this.edgeTarget = null;
+        } else {
+            this.denseNext = null;
+            this.edgeStart = new int[stateCount + 1];
+            this.edgeLabel = new char[builder.edgeCount];
+            this.edgeTarget = new int[builder.edgeCount];
+            builder.sparseTransitions(edgeStart, edgeLabel, edgeTarget);
+        }
+
+        SearchBudget.checkpoint(budget, 0, 0);
+        this.endposCount = builder.endposCounts();
+        this.firstEnd = Arrays.copyOf(builder.firstEnd, stateCount);
+        for (int s = 0; s < stateCount; s++) {
+            if (builder.isClone[s]) {
+                firstEnd[s] = -1 - firstEnd[s];
+            }
+        }
+
+        this.childStart = new int[stateCount + 1];
+        this.children = new int[Math.max(stateCount - 1, 0)];
+        for (int s = 1; s < stateCount; s++) {
+            childStart[builder.link[s] + 1]++;
+        }
+        for (int s = 0; s < stateCount; s++) {
+            childStart[s + 1] += childStart[s];
+        }
+        int[] fill = Arrays.copyOf(childStart, stateCount);
+        for (int s = 1; s < stateCount; s++) {
+            children[fill[builder.link[s]]++] = s;
+        }
+    }
+
+    @Override
+    public int textLength() {
+        return n;
+    }
+
+    /**
+     * @return Number of automaton states (at most 2n - 1 for n >= 2)
+     */
+    public int stateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public boolean contains(String pattern) {
+        return walk(pattern) >= 0;
+    }
+
+    @Override
+    public int count(String pattern) {
+        if (pattern.isEmpty()) {
+            return n + 1;
+        }
+        int state = walk(pattern);
+        return state < 0 ? 0 : endposCount[state];
+    }
+
+    @Override
+    public int[] findAll(String pattern) {
+        if (pattern.isEmpty()) {
+            return TextIndex.allPositions(n);
+        }
+        int state = walk(pattern);
+        if (state < 0) {
+            return new int[0];
+        }
+        int m = pattern.length();
+        int[] positions = new int[endposCount[state]];
+        int found = 0;
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = state;
+        SearchBudget budget = SearchBudget.current();
+        int checkMask = SearchBudget.checkMask(1);
+        long visited = 0;
+        while (top > 0) {
+            SearchBudget.checkpoint(budget, visited++, checkMask);
+            int s = stack[--top];
+            if (firstEnd[s] >= 0) {
+                positions[found++] = firstEnd[s] - m + 1;
+            }
+            for (int c = childStart[s]; c < childStart[s + 1]; c++) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = children[c];
+            }
+        }
+        TextIndex.sortPositions(positions, n);
+        return positions;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = 16 + 2L * alphabet.length
+                + 16 + 4L * endposCount.length
+                + 16 + 4L * firstEnd.length
+                + 16 + 4L * childStart.length
+                + 16 + 4L * children.length;
+        if (denseNext != null) {
+            bytes += 16 + 4L * denseNext.length;
+        } else {
+            bytes += 16 + 4L * edgeStart.length + 16 + 2L * edgeLabel.length + 16 + 4L * edgeTarget.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Follow the pattern from the root.
+     * @return The state reached, or -1 if the pattern is not a substring
+     */
+    private int walk(String pattern) {
+        int state = 0;
+        for (int i = 0; i < pattern.length() && state >= 0; i++) {
+            state = next(state, pattern.charAt(i));
+        }
+        return state;
+    }
+
+    private int next(int state, char c) {
+        if (denseNext != null) {
+            int slot = Arrays.binarySearch(alphabet, c);
+            return slot < 0 ? -1 : denseNext[state * alphabet.length + slot];
+        }
+        int idx = Arrays.binarySearch(edgeLabel, edgeStart[state], edgeStart[state + 1], c);
+        return idx < 0 ? -1 : edgeTarget[idx];
+    }
+
+    /**
+     * Online construction. Transitions are kept as per-state linked lists in flat
+     * arrays until the automaton is frozen.
+     */
+    private static final class Builder {
+        int size;
+        int last;
+        final int[] len;
+        final int[] link;
+        final int[] firstEnd;
+        final boolean[] isClone;
+        final int[] edgeHead;
+
+        int edgeCount;
+        char[] edgeChar;
+        int[] edgeNext;
+        int[] edgeTo;
+
+        Builder(int n) {
+            int maxStates = 2 * n + 2;
+            len = new int[maxStates];
+            link = new int[maxStates];
+            firstEnd = new int[maxStates];
+            isClone = new boolean[maxStates];
+            edgeHead = new int[maxStates];
+            int edgeCapacity = 3 * n + 4;
+            edgeChar = new char[edgeCapacity];
+            edgeNext = new int[edgeCapacity];
+            edgeTo = new int[edgeCapacity];
+
+            link[0] = -1;
+            edgeHead[0] = -1;
+            size = 1;
+            last = 0;
+        }
+
+        void extend(char c) {
+            int cur = size++;
+            len[cur] = len[last] + 1;
+            firstEnd[cur] = len[cur] - 1;
+            edgeHead[cur] = -1;
+
+            int p = last;
+            while (p != -1 && transition(p, c) < 0) {
+                addEdge(p, c, cur);
+                p = link[p];
+            }
+            if (p == -1) {
+                link[cur] = 0;
+            } else {
+                int q = transition(p, c);
+                if (len[p] + 1 == len[q]) {
+                    link[cur] = q;
+                } else {
+                    int clone = size++;
+                    len[clone] = len[p] + 1;
+                    link[clone] = link[q];
+                    firstEnd[clone] = firstEnd[q];
+                    isClone[clone] = true;
+                    edgeHead[clone] = -1;
+                    for (int e = edgeHead[q]; e != -1; e = edgeNext[e]) {
+                        addEdge(clone, edgeChar[e], edgeTo[e]);
+                    }
+                    while (p != -1 && transition(p, c) == q) {
+                        redirect(p, c, clone);
+                        p = link[p];
+                    }
+                    link[q] = clone;
+                    link[cur] = clone;
+                }
+            }
+            last = cur;
+        }
+
+        int transition(int state, char c) {
+            for (int e = edgeHead[state]; e != -1; e = edgeNext[e]) {
+                if (edgeChar[e] == c) {
+                    return edgeTo[e];
+                }
+            }
+            return -1;
+        }
+
+        void addEdge(int state, char c, int target) {
+            if (edgeCount == edgeChar.length) {
+                int capacity = edgeCount * 2;
+                edgeChar = Arrays.copyOf(edgeChar, capacity);
+                edgeNext = Arrays.copyOf(edgeNext, capacity);
+                edgeTo = Arrays.copyOf(edgeTo, capacity);
+            }
+            edgeChar[edgeCount] = c;
+            edgeTo[edgeCount] = target;
+            edgeNext[edgeCount] = edgeHead[state];
+            edgeHead[state] = edgeCount++;
+        }
+
+        void redirect(int state, char c, int target) {
+            for (int e = edgeHead[state]; e != -1; e = edgeNext[e]) {
+                if (edgeChar[e] == c) {
+                    edgeTo[e] = target;
+                    return;
+                }
+            }
+        }
+
+        char[] alphabet() {
+            // Every text character labels at least one edge out of the root
+            char[] chars = new char[edgeCount];
+            int count = 0;
+            for (int e = edgeHead[0]; e != -1; e = edgeNext[e]) {
+                chars[count++] = edgeChar[e];
+            }
+            chars = Arrays.copyOf(chars, count);
+            Arrays.sort(chars);
+            return chars;
+        }
+
+        int[] denseTransitions(char[] alphabet) {
+            int[] next = new int[size * alphabet.length];
+            Arrays.fill(next, -1);
+            for (int s = 0; s < size; s++) {
+                for (int e = edgeHead[s]; e != -1; e = edgeNext[e]) {
+                    next[s * alphabet.length + Arrays.binarySearch(alphabet, edgeChar[e])] = edgeTo[e];
+                }
+            }
+            return next;
+        }
+
+        void sparseTransitions(int[] start, char[] label, int[] target) {
+            int pos = 0;
+            for (int s = 0; s < size; s++) {
+                start[s] = pos;
+                for (int e = edgeHead[s]; e != -1; e = edgeNext[e]) {
+                    label[pos] = edgeChar[e];
+                    target[pos] = edgeTo[e];
+                    pos++;
+                }
+                // Insertion sort by label: out-degree is bounded by the alphabet
+                for (int i = start[s] + 1; i < pos; i++) {
+                    char l = label[i];
+                    int t = target[i];
+                    int j = i - 1;
+                    while (j >= start[s] && label[j] > l) {
+                        label[j + 1] = label[j];
+                        target[j + 1] = target[j];
+                        j--;
+                    }
+                    label[j + 1] = l;
+                    target[j + 1] = t;
+                }
+            }
+            start[size] = pos;
+        }
+
+        /**
+         * |endpos| per state: 1 for every non-clone state, summed up the suffix links
+         * in order of decreasing len (counting sort).
+         */
+        int[] endposCounts() {
+            int[] cnt = new int[size];
+            int maxLen = 0;
+            for (int s = 0; s < size; s++) {
+                if (s > 0 && !isClone[s]) {
+                    cnt[s] = 1;
+                }
+                maxLen = Math.max(maxLen, len[s]);
+            }
+            int[] bucket = new int[maxLen + 2];
+            for (int s = 0; s < size; s++) {
+                bucket[len[s] + 1]++;
+            }
+            for (int l = 1; l < bucket.length; l++) {
+                bucket[l] += bucket[l - 1];
+            }
+            int[] order = new int[size];
+            for (int s = 0; s < size; s++) {
+                order[bucket[len[s]]++] = s;
+            }
+            for (int i = size - 1; i > 0; i--) {
+                int s = order[i];
+                cnt[link[s]] += cnt[s];
+            }
+            return cnt;
+        }
+    }
+}
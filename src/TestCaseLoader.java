@@ -6,6 +6,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -46,8 +47,17 @@ public class TestCaseLoader {
      * Load test cases from a specific directory
      */
     public static List<TestCase> loadTestCasesFromDirectory(String subDir) {
-        List<TestCase> testCases = new ArrayList<>();
+        try (Stream<TestCase> testCases = streamTestCasesFromDirectory(subDir)) {
+            return testCases.collect(Collectors.toList());
+        }
+    }
 
+    /**
+     * Stream the test cases of a directory lazily: each file is read and parsed only
+     * when the stream reaches it, so large corpora need not fit in memory at once.
+     * Files that fail to parse are reported and skipped.
+     */
+    public static Stream<TestCase> streamTestCasesFromDirectory(String subDir) {
         // Try multiple possible paths (for running from different directories)
         Path dirPath = Paths.get(TESTCASES_DIR, subDir);
         if (!Files.exists(dirPath)) {
@@ -58,29 +68,56 @@ public class TestCaseLoader {
             System.err.println("Warning: Directory does not exist: " + TESTCASES_DIR + "/" + subDir);
             System.err.println("         Tried: " + Paths.get(TESTCASES_DIR, subDir).toAbsolutePath());
             System.err.println("         And: " + Paths.get("..", TESTCASES_DIR, subDir).toAbsolutePath());
-            return testCases;
+            return Stream.empty();
         }
         
+        List<Path> jsonFiles;
         try (Stream<Path> paths = Files.walk(dirPath, 1)) {
-            List<Path> jsonFiles = paths
+            jsonFiles = paths
                 .filter(Files::isRegularFile)
                 .filter(p -> p.toString().endsWith(".json"))
                 .sorted()
                 .collect(Collectors.toList());
-            
-            for (Path jsonFile : jsonFiles) {
+        } catch (IOException e) {
+            System.err.println("Error reading directory " + dirPath + ": " + e.getMessage());
+            return Stream.empty();
+        }
+
+        return jsonFiles.stream()
+            .map(jsonFile -> {
                 try {
-                    TestCase testCase = loadTestCaseFromFile(jsonFile);
-                    testCases.add(testCase);
+                    return loadTestCaseFromFile(jsonFile);
                 } catch (Exception e) {
                     System.err.println("Error loading test case from " + jsonFile + ": " + e.getMessage());
+                    return null;
                 }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading directory " + dirPath + ": " + e.getMessage());
+            })
+            .filter(Objects::nonNull);
+    }
+
+    /**
+     * Stream generated workloads (see WorkloadGenerator.suite) lazily: each case is
+     * generated, with its expected result, only when the stream reaches it. Cases whose
+     * expected result would not fit in a String are skipped with a notice.
+     * @param seed Suite seed
+     * @param maxTextLength Largest text length to generate
+     */
+    public static Stream<TestCase> streamGeneratedTestCases(long seed, long maxTextLength) {
+        return WorkloadGenerator.suite(seed, maxTextLength).stream()
+                .map(TestCaseLoader::generateOrSkip)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * WorkloadGenerator.generate, or null (after a notice) if the case cannot be represented
+     */
+    static TestCase generateOrSkip(WorkloadGenerator.Spec spec) {
+        try {
+            return WorkloadGenerator.generate(spec);
+        } catch (IllegalArgumentException e) {
+            System.out.println("⚠ Skipping " + e.getMessage());
+            return null;
         }
-        
-        return testCases;
     }
     
     /**
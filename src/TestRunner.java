@@ -1,10 +1,51 @@
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
 
 /**
  * Runs test cases and generates comparison tables
  */
 public class TestRunner {
+
+    // Run engines through solveEncoded and compare the MatchEncoding bytes instead of Strings
+    private static boolean encodedResults = false;
+
+    /**
+     * Exchange results in the compact MatchEncoding format instead of comma-separated Strings
+     */
+    public static void setEncodedResults(boolean enabled) {
+        encodedResults = enabled;
+    }
+
+    /**
+     * Check an engine's output against a test's expected result. Accepts either the
+     * comma-separated String from Solve or a byte[] from Solution.solveEncoded.
+     */
+    static boolean matchesExpected(Object output, TestCase testCase) {
+        if (output instanceof byte[]) {
+            return MatchEncoding.equalsResult((byte[]) output, testCase.getExpectedResult());
+        }
+        return testCase.getExpectedResult().equals(output);
+    }
+
+    /**
+     * Run the engine in the configured result format
+     */
+    private static Object solve(Solution solution, TestCase testCase) {
+        if (encodedResults) {
+            return solution.solveEncoded(testCase.getText(), testCase.getPattern());
+        }
+        return solution.solveRecorded(testCase.getText(), testCase.getPattern());
+    }
+
+    /**
+     * Printable form of an output in either format
+     */
+    private static String describe(Object output) {
+        return output instanceof byte[] ? MatchEncoding.toResultString((byte[]) output) : (String) output;
+    }
     
     /**
      * Result of running a single algorithm on a single test case
@@ -14,7 +55,7 @@ public class TestRunner {
         String testCaseName;
         boolean success;
         String result;
-        long executionTimeNanos;
+        long executionTimeNanos; // -1 when the run was not timed (parallel verification)
         String errorMessage;
         
         public TestResult(String algorithmName, String testCaseName) {
@@ -32,6 +73,7 @@ public class TestRunner {
         long algorithmExecutionTimeNanos;
         boolean success;
         String result;
+        String errorMessage;
         
         // For comparison: what if we had used a different algorithm?
         Map<String, Long> alternativeExecutionTimes = new HashMap<>();
@@ -46,18 +88,122 @@ public class TestRunner {
         
         for (TestCase testCase : testCases) {
             for (Class<? extends Solution> algorithmClass : algorithms) {
-                TestResult result = runSingleTest(algorithmClass, testCase);
+                TestResult result = runSingleTest(algorithmClass, testCase, true);
                 results.add(result);
             }
         }
         
         return results;
     }
+
+    /**
+     * Correctness-only version of runAllTests that spreads the (test case x algorithm)
+     * pairs over a work-stealing ForkJoinPool. The results come back in the same order
+     * as runAllTests, whatever order the pairs finish in. Runs are not timed, since
+     * times taken while every core is busy are not comparable. Use ManualTestRunner
+     * for timing, which runs one engine at a time on the calling thread.
+     * @param testCases The test cases
+     * @param parallelism Worker threads
+     */
+    public static List<TestResult> runAllTestsParallel(List<TestCase> testCases, int parallelism) {
+        return runAllTestsParallel(testCases.size(), testCases::get, parallelism);
+    }
+
+    /**
+     * runAllTestsParallel over test cases that are loaded or generated on demand: the
+     * task for case i calls loader.apply(i), runs every algorithm on the case in
+     * parallel, then lets it go. Only the cases being worked on are in memory, and
+     * only failing pairs keep their output.
+     * @param count Number of test cases
+     * @param loader Produces test case i, or null to skip it
+     * @param parallelism Worker threads
+     */
+    public static List<TestResult> runAllTestsParallel(int count, IntFunction<TestCase> loader, int parallelism) {
+        List<Class<? extends Solution>> algorithms = new ArrayList<>(Solution.SUBCLASSES);
+        TestResult[] slots = new TestResult[count * algorithms.size()];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new CaseRangeTask(loader, algorithms, slots, 0, count));
+        } finally {
+            pool.shutdown();
+        }
+        List<TestResult> results = new ArrayList<>(slots.length);
+        for (TestResult result : slots) {
+            if (result != null) { // null = pair of a skipped test case
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Splits a range of test cases in halves down to single cases
+     */
+    private static final class CaseRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntFunction<TestCase> loader;
+        private final List<Class<? extends Solution>> algorithms;
+        private final TestResult[] slots;
+        private final int from;
+        private final int to;
+
+        CaseRangeTask(IntFunction<TestCase> loader, List<Class<? extends Solution>> algorithms,
+                      TestResult[] slots, int from, int to) {
+            this.loader = loader;
+            this.algorithms = algorithms;
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CaseRangeTask(loader, algorithms, slots, from, mid),
+                        new CaseRangeTask(loader, algorithms, slots, mid, to));
+                return;
+            }
+            TestCase testCase;
+            try {
+                testCase = loader.apply(from);
+            } catch (RuntimeException | OutOfMemoryError e) {
+                for (int a = 0; a < algorithms.size(); a++) {
+                    TestResult result = new TestResult(algorithms.get(a).getSimpleName(), "#" + from);
+                    result.executionTimeNanos = -1;
+                    result.errorMessage = "Could not load test case: " + e;
+                    slots[from * algorithms.size() + a] = result;
+                }
+                return;
+            }
+            if (testCase == null) {
+                return;
+            }
+            List<RecursiveAction> pairs = new ArrayList<>();
+            for (int a = 0; a < algorithms.size(); a++) {
+                Class<? extends Solution> algorithmClass = algorithms.get(a);
+                int slot = from * algorithms.size() + a;
+                pairs.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        TestResult result = runSingleTest(algorithmClass, testCase, false);
+                        if (result.success) {
+                            result.result = null;
+                        }
+                        slots[slot] = result;
+                    }
+                });
+            }
+            invokeAll(pairs);
+        }
+    }
     
     /**
      * Run a single algorithm on a single test case
+     * @param timed Whether to record the execution time (otherwise it is -1)
      */
-    private static TestResult runSingleTest(Class<? extends Solution> algorithmClass, TestCase testCase) {
+    private static TestResult runSingleTest(Class<? extends Solution> algorithmClass, TestCase testCase, boolean timed) {
         TestResult result = new TestResult(algorithmClass.getSimpleName(), testCase.getName());
         
         try {
@@ -65,12 +211,12 @@ public class TestRunner {
             Solution solution = constructor.newInstance();
             
             long startTime = System.nanoTime();
-            String output = solution.Solve(testCase.getText(), testCase.getPattern());
+            Object output = solve(solution, testCase);
             long endTime = System.nanoTime();
             
-            result.executionTimeNanos = endTime - startTime;
-            result.result = output;
-            result.success = output.equals(testCase.getExpectedResult());
+            result.executionTimeNanos = timed ? endTime - startTime : -1;
+            result.result = describe(output);
+            result.success = matchesExpected(output, testCase);
             
         } catch (UnsupportedOperationException e) {
             result.success = false;
@@ -89,38 +235,46 @@ public class TestRunner {
     public static PreAnalysisResult runWithPreAnalysis(PreAnalysis preAnalysis, TestCase testCase) {
         PreAnalysisResult result = new PreAnalysisResult();
         
-        // Run pre-analysis
+        // Run pre-analysis (returns a prepared engine)
         long analysisStart = System.nanoTime();
-        String chosenAlgorithm = preAnalysis.chooseAlgorithm(testCase.getText(), testCase.getPattern());
+        Solution solution;
+        try {
+            solution = preAnalysis.chooseSolution(testCase.getText(), testCase.getPattern());
+        } catch (IllegalArgumentException e) {
+            result.success = false;
+            result.errorMessage = e.getMessage();
+            return result;
+        }
         long analysisEnd = System.nanoTime();
         
         result.analysisTimeNanos = analysisEnd - analysisStart;
-        result.chosenAlgorithm = chosenAlgorithm;
         
-        if (chosenAlgorithm == null) {
+        if (solution == null) {
             result.success = false;
+            result.errorMessage = "PreAnalysis chose no algorithm";
             return result;
         }
+        String chosenAlgorithm = solution.getName();
+        result.chosenAlgorithm = chosenAlgorithm;
         
         // Execute the chosen algorithm
         try {
-            Solution solution = createSolutionByName(chosenAlgorithm);
             long execStart = System.nanoTime();
-            String output = solution.Solve(testCase.getText(), testCase.getPattern());
+            Object output = solve(solution, testCase);
             long execEnd = System.nanoTime();
             
             result.algorithmExecutionTimeNanos = execEnd - execStart;
-            result.result = output;
-            result.success = output.equals(testCase.getExpectedResult());
+            result.result = describe(output);
+            result.success = matchesExpected(output, testCase);
             
             // Also run other algorithms for comparison
             for (Class<? extends Solution> algorithmClass : Solution.SUBCLASSES) {
                 String algName = algorithmClass.getSimpleName();
                 if (!algName.equals(chosenAlgorithm)) {
                     try {
-                        Solution altSolution = algorithmClass.getDeclaredConstructor().newInstance();
+                        Solution altSolution = SolutionFactory.getInstance(algName);
                         long altStart = System.nanoTime();
-                        altSolution.Solve(testCase.getText(), testCase.getPattern());
+                        solve(altSolution, testCase);
                         long altEnd = System.nanoTime();
                         result.alternativeExecutionTimes.put(algName, altEnd - altStart);
                     } catch (Exception e) {
@@ -131,23 +285,12 @@ public class TestRunner {
             
         } catch (Exception e) {
             result.success = false;
+            result.errorMessage = e.getMessage();
         }
         
         return result;
     }
     
-    /**
-     * Create a solution instance by algorithm name
-     */
-    private static Solution createSolutionByName(String name) throws Exception {
-        for (Class<? extends Solution> algorithmClass : Solution.SUBCLASSES) {
-            if (algorithmClass.getSimpleName().equals(name)) {
-                return algorithmClass.getDeclaredConstructor().newInstance();
-            }
-        }
-        throw new IllegalArgumentException("Algorithm not found: " + name);
-    }
-    
     /**
      * Generate a comparison table showing which algorithms solved which test cases
      */
@@ -220,8 +363,10 @@ public class TestRunner {
                         notImplemented++;
                     } else if (result.success) {
                         passed++;
-                        totalTime += result.executionTimeNanos;
-                        timedTests++;
+                        if (result.executionTimeNanos >= 0) {
+                            totalTime += result.executionTimeNanos;
+                            timedTests++;
+                        }
                     } else {
                         failed++;
                     }
@@ -243,6 +388,19 @@ public class TestRunner {
         System.out.println("=".repeat(100));
     }
     
+    /**
+     * Number of results that failed or errored (not counting unimplemented algorithms)
+     */
+    public static int countFailures(List<TestResult> results) {
+        int failed = 0;
+        for (TestResult result : results) {
+            if (!result.success && !"Not implemented".equals(result.errorMessage)) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
     /**
      * Find a specific test result
      */
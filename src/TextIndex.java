@@ -0,0 +1,95 @@
+import java.util.Arrays;
+
+/**
+ * A prebuilt index over a single fixed text.
+ *
+ * Unlike the Solution engines, which rescan the whole text on every call, an index
+ * pays its construction cost once and then answers many pattern queries against
+ * the same text.
+ */
+public interface TextIndex {
+
+    /**
+     * @return Length of the indexed text
+     */
+    int textLength();
+
+    /**
+     * Find every position where the pattern occurs in the indexed text
+     * @param pattern The pattern to search for
+     * @return Ascending array of start indices (0..n for the empty pattern)
+     */
+    int[] findAll(String pattern);
+
+    /**
+     * Count the occurrences of the pattern without materializing their positions
+     * @param pattern The pattern to search for
+     * @return Number of occurrences (n+1 for the empty pattern)
+     */
+    int count(String pattern);
+
+    /**
+     * Check whether the pattern occurs at least once
+     * @param pattern The pattern to search for
+     * @return true if the pattern occurs in the indexed text
+     */
+    default boolean contains(String pattern) {
+        return count(pattern) > 0;
+    }
+
+    /**
+     * Approximate heap footprint of the index, excluding the text itself
+     * @return Size in bytes
+     */
+    long sizeInBytes();
+
+    /**
+     * @return true if the index keeps a reference to the text it was built from
+     */
+    default boolean retainsText() {
+        return false;
+    }
+
+    /**
+     * Sort match positions in place for findAll, checking the current search's budget.
+     * Dense results (more than one match per 64 text positions) go through a bitmap of
+     * the text in O(occ + n / 64) steps; sparse ones are small enough for Arrays.sort.
+     * @param positions Distinct positions in [0, n)
+     * @param n Length of the text
+     * @throws SearchBudget.Exhausted if the budget runs out
+     */
+    static void sortPositions(int[] positions, int n) {
+        SearchBudget budget = SearchBudget.current();
+        if (positions.length <= n / 64) {
+            SearchBudget.checkpoint(budget, 0, 0);
+            Arrays.sort(positions);
+            return;
+        }
+        int checkMask = SearchBudget.checkMask(1);
+        long[] bits = new long[(n >>> 6) + 1];
+        for (int i = 0; i < positions.length; i++) {
+            SearchBudget.checkpoint(budget, i, checkMask);
+            bits[positions[i] >>> 6] |= 1L << positions[i];
+        }
+        int k = 0;
+        for (int w = 0; w < bits.length; w++) {
+            SearchBudget.checkpoint(budget, w, checkMask);
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                positions[k++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+    }
+
+    /**
+     * Result for the empty pattern, which matches at every position 0..n
+     * @param n Length of the text
+     * @return Array {0, 1, ..., n}
+     */
+    static int[] allPositions(int n) {
+        int[] positions = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,425 @@
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache of TextIndex instances keyed by a content fingerprint of the text.
+ *
+ * Texts are identified by their length and full String hash, which String computes
+ * once per instance and caches, so repeated queries with the same String cost O(1).
+ * The cache does not keep texts alive: a slot holds a weak reference to the last
+ * String its index answered for, and a 64-bit checksum of its content. A hit on
+ * that String is handed out directly; any other String with the same fingerprint
+ * is checksummed outside the cache monitor, so collisions never produce wrong
+ * results and never serialize other callers. Only indexes that retain their text
+ * (see TextIndex.retainsText) are charged for it.
+ * lookup() counts queries per text and only builds an index once a text has been
+ * queried buildThreshold times; texts that are only seen once or twice keep using the
+ * linear-scan engines. A build in progress is registered in its slot, so concurrent
+ * callers for the same text wait for it instead of building copies of their own.
+ * Built indexes are evicted in LRU order once their total size exceeds the byte budget.
+ */
+public class TextIndexCache {
+    public static final int DEFAULT_BUILD_THRESHOLD = 8;
+    public static final int DEFAULT_MIN_TEXT_LENGTH = 4096;
+    public static final long DEFAULT_BUDGET_BYTES = 256L * 1024 * 1024;
+
+    /** Texts whose query count is tracked before an index exists */
+    private static final int MAX_TRACKED_TEXTS = 4096;
+
+    /** How often a caller with a budget checks it while waiting for another caller's build */
+    static final long WAIT_CHECK_MILLIS = 10;
+
+    private static final TextIndexCache SHARED = new TextIndexCache(DEFAULT_BUDGET_BYTES);
+
+    private final LinkedHashMap<Key, Slot> slots = new LinkedHashMap<>(64, 0.75f, true);
+    private long budgetBytes;
+    private long usedBytes;
+    private int indexedSlots;
+    private int buildThreshold = DEFAULT_BUILD_THRESHOLD;
+    private int minTextLength = DEFAULT_MIN_TEXT_LENGTH;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TextIndexCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return The process-wide cache the engines consult
+     */
+    public static TextIndexCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Record a query against the text and return an index for it if one is worth
+     * having: either it is already cached, or the text is long enough and has now
+     * been queried buildThreshold times, in which case the index is built here.
+     *
+     * @param text The text about to be searched
+     * @param kind Index kind, e.g. "SuffixArray"; each kind is cached separately
+     * @param factory Builds an index of that kind
+     * @return The index, or null if the caller should scan the text directly
+     */
+    public TextIndex lookup(String text, String kind, Function<String, TextIndex> factory) {
+        if (text.length() < minTextLength) {
+            return null;
+        }
+        Key key = new Key(kind, fingerprint(text));
+        Slot slot;
+        WeakReference<String> cachedText;
+        long cachedChecksum;
+        TextIndex cachedIndex;
+        synchronized (this) {
+            slot = slots.get(key);
+            if (slot == null) {
+                slot = new Slot();
+                slots.put(key, slot);
+                evictToBudget();
+            }
+            cachedText = slot.text;
+            cachedChecksum = slot.checksum;
+            cachedIndex = slot.index;
+            if (cachedIndex == null && slot.building == null && ++slot.queries < buildThreshold) {
+                return null;
+            }
+        }
+        if (cachedIndex != null) {
+            TextIndex index = verified(slot, cachedText, cachedChecksum, cachedIndex, text);
+            if (index != null) {
+                return index;
+            }
+        }
+        return build(key, text, factory);
+    }
+
+    /**
+     * Return the cached index for the text, building and caching it if absent,
+     * regardless of the query-count threshold.
+     *
+     * @param text The text to index
+     * @param kind Index kind; each kind is cached separately
+     * @param factory Builds an index of that kind
+     * @return The index (never null)
+     */
+    public TextIndex getOrBuild(String text, String kind, Function<String, TextIndex> factory) {
+        Key key = new Key(kind, fingerprint(text));
+        Slot slot;
+        WeakReference<String> cachedText = null;
+        long cachedChecksum = 0;
+        TextIndex cachedIndex = null;
+        synchronized (this) {
+            slot = slots.get(key);
+            if (slot != null) {
+                cachedText = slot.text;
+                cachedChecksum = slot.checksum;
+                cachedIndex = slot.index;
+            }
+        }
+        if (cachedIndex != null) {
+            TextIndex index = verified(slot, cachedText, cachedChecksum, cachedIndex, text);
+            if (index != null) {
+                return index;
+            }
+        }
+        return build(key, text, factory);
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evictToBudget();
+    }
+
+    public synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * @param buildThreshold Number of lookups of a text before lookup() builds its index
+     */
+    public synchronized void setBuildThreshold(int buildThreshold) {
+        this.buildThreshold = buildThreshold;
+    }
+
+    public synchronized int getBuildThreshold() {
+        return buildThreshold;
+    }
+
+    /**
+     * @param minTextLength Texts shorter than this are never indexed by lookup()
+     */
+    public synchronized void setMinTextLength(int minTextLength) {
+        this.minTextLength = minTextLength;
+    }
+
+    public synchronized int getMinTextLength() {
+        return minTextLength;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int getIndexCount() {
+        return indexedSlots;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getBuilds() {
+        return builds.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Drop every index and query count, and reset the counters.
+     */
+    public synchronized void clear() {
+        slots.clear();
+        usedBytes = 0;
+        indexedSlots = 0;
+        hits.reset();
+        builds.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Content fingerprint: length in the high half, the full String hash in the low
+     * half. Equal texts always have equal fingerprints; the hash is computed once per
+     * String instance and then cached by String itself.
+     * @param text The text to fingerprint
+     * @return 64-bit fingerprint
+     */
+    static long fingerprint(String text) {
+        return ((long) text.length() << 32) | (text.hashCode() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Content checksum (64-bit FNV-1a over the chars), independent of String.hashCode,
+     * so a slot can recognise its text without holding on to it.
+     * @param text The text to checksum
+     * @return 64-bit checksum
+     */
+    static long checksum(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Hand out the cached index if it was built for this text. Called without the
+     * monitor held, since the checksum fallback is O(n).
+     */
+    private TextIndex verified(Slot slot, WeakReference<String> cachedText, long cachedChecksum,
+                               TextIndex cachedIndex, String text) {
+        if (cachedText.get() != text) {
+            if (checksum(text) != cachedChecksum) {
+                return null; // Fingerprint collision with a different text
+            }
+            synchronized (this) {
+                if (slot.index == cachedIndex) {
+                    // Callers usually reuse the latest String; make its next hit O(1)
+                    slot.text = new WeakReference<>(text);
+                }
+            }
+        }
+        hits.increment();
+        return cachedIndex;
+    }
+
+    /**
+     * Build the index for a text, or wait for the build another caller already started.
+     */
+    private TextIndex build(Key key, String text, Function<String, TextIndex> factory) {
+        long checksum = checksum(text);
+        while (true) {
+            CompletableFuture<Built> pending;
+            CompletableFuture<Built> mine = null;
+            synchronized (this) {
+                Slot slot = slots.get(key);
+                if (slot == null) {
+                    slot = new Slot();
+                    slots.put(key, slot);
+                    evictToBudget();
+                }
+                if (slot.index != null && slot.checksum == checksum) {
+                    hits.increment(); // Built by another caller since our lookup
+                    return slot.index;
+                }
+                if (slot.index != null) {
+                    pending = null; // Fingerprint collision: keep the cached index, build ours uncached
+                } else {
+                    pending = slot.building;
+                    if (pending == null) {
+                        mine = new CompletableFuture<>();
+                        slot.building = mine;
+                    }
+                }
+            }
+            if (mine != null) {
+                return buildAndPublish(key, text, checksum, factory, mine);
+            }
+            if (pending == null) {
+                builds.increment();
+                return factory.apply(text);
+            }
+            Built built;
+            try {
+                built = await(pending);
+            } catch (CompletionException | CancellationException e) {
+                continue; // The builder failed or ran out of its budget; the next caller through takes over
+            }
+            if (built.checksum == checksum) {
+                hits.increment();
+                return built.index;
+            }
+            builds.increment();
+            return factory.apply(text); // Collision with the text being built
+        }
+    }
+
+    /**
+     * Wait for another caller's build. Under a budget, wake up every WAIT_CHECK_MILLIS
+     * to check it, so a search cannot be held past its deadline by someone else's build.
+     * @throws SearchBudget.Exhausted if the current search's budget runs out first
+     */
+    private static Built await(CompletableFuture<Built> pending) {
+        SearchBudget budget = SearchBudget.current();
+        if (budget == null) {
+            return pending.join();
+        }
+        while (true) {
+            try {
+                return pending.get(WAIT_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                SearchBudget.checkpoint(budget, 0, 0);
+            } catch (ExecutionException e) {
+                throw new CompletionException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                budget.cancel(); // An interrupted wait cancels the search
+                SearchBudget.checkpoint(budget, 0, 0);
+            }
+        }
+    }
+
+    private TextIndex buildAndPublish(Key key, String text, long checksum, Function<String, TextIndex> factory,
+                                      CompletableFuture<Built> mine) {
+        TextIndex index;
+        try {
+            index = factory.apply(text);
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                Slot slot = slots.get(key);
+                if (slot != null && slot.building == mine) {
+                    slot.building = null;
+                }
+            }
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        builds.increment();
+        long bytes = index.sizeInBytes() + 48 + (index.retainsText() ? 2L * text.length() : 0);
+        synchronized (this) {
+            Slot slot = slots.get(key);
+            if (slot != null && slot.building == mine) { // Else clear() dropped the slot meanwhile
+                slot.building = null;
+                if (bytes <= budgetBytes) { // Else it never fits; hand it out without caching it
+                    slot.text = new WeakReference<>(text);
+                    slot.checksum = checksum;
+                    slot.index = index;
+                    slot.bytes = bytes;
+                    usedBytes += bytes;
+                    indexedSlots++;
+                    evictToBudget();
+                }
+            }
+        }
+        mine.complete(new Built(index, checksum));
+        return index;
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<Key, Slot>> it = slots.entrySet().iterator();
+        while ((usedBytes > budgetBytes || slots.size() - indexedSlots > MAX_TRACKED_TEXTS) && it.hasNext()) {
+            Slot slot = it.next().getValue();
+            if (slot.building != null) {
+                continue; // Its callers are waiting on the build
+            }
+            if (slot.index != null) {
+                if (usedBytes <= budgetBytes) {
+                    continue; // Only trimming query counters
+                }
+                usedBytes -= slot.bytes;
+                indexedSlots--;
+                evictions.increment();
+            }
+            it.remove();
+        }
+    }
+
+    private static final class Key {
+        final String kind;
+        final long fingerprint;
+
+        Key(String kind, long fingerprint) {
+            this.kind = kind;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return fingerprint == other.fingerprint && kind.equals(other.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + Long.hashCode(fingerprint);
+        }
+    }
+
+    private static final class Slot {
+        WeakReference<String> text;     // Last String the index answered for
+        long checksum;                  // checksum() of the indexed text
+        TextIndex index;
+        CompletableFuture<Built> building; // Build in progress, or null
+        long bytes;
+        int queries;
+    }
+
+    private static final class Built {
+        final TextIndex index;
+        final long checksum;
+
+        Built(TextIndex index, long checksum) {
+            this.index = index;
+            this.checksum = checksum;
+        }
+    }
+}
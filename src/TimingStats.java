@@ -0,0 +1,228 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Timing samples of one operation with robust summary statistics.
+ *
+ * measure() warms the operation up and then keeps sampling until the 95%
+ * confidence interval of the median is within the target precision (relative
+ * half-width), or a sample or time cap is hit. The median's interval is the
+ * distribution-free one from order statistics, so the occasional GC or JIT
+ * outlier widens the tail percentiles but not the interval. clearWinner() only
+ * names a fastest operation when its interval lies entirely below every other
+ * operation's interval.
+ */
+public final class TimingStats {
+    /** Stop once the 95% CI half-width is within this fraction of the median */
+    public static final double DEFAULT_TARGET_PRECISION = 0.05;
+    /** Stop sampling one operation after this long even if not converged */
+    public static final long DEFAULT_MAX_TIME_NANOS = 50_000_000L;
+
+    static final int MIN_SAMPLES = 10;
+    static final int MAX_SAMPLES = 2000;
+    static final int MIN_WARMUP = 3;
+    static final long WARMUP_NANOS = 2_000_000L;
+
+    private static final double Z95 = 1.96;
+
+    // Results are folded in here so the JIT cannot drop the measured call
+    private static volatile int sink;
+
+    private final long[] samples;  // In measurement order
+    private final long[] sorted;
+    private final double mean;
+    private final double stddev;
+    private final long ciLow;
+    private final long ciHigh;
+    private final boolean converged;
+
+    private TimingStats(long[] samples, boolean converged) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("No samples");
+        }
+        this.samples = samples;
+        this.sorted = samples.clone();
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (long s : samples) {
+            sum += s;
+        }
+        this.mean = sum / samples.length;
+        double squares = 0;
+        for (long s : samples) {
+            squares += (s - mean) * (s - mean);
+        }
+        this.stddev = samples.length > 1 ? Math.sqrt(squares / (samples.length - 1)) : 0.0;
+        int n = sorted.length;
+        double spread = Z95 * Math.sqrt(n) / 2.0;
+        this.ciLow = sorted[Math.max(0, (int) Math.floor(n / 2.0 - spread))];
+        this.ciHigh = sorted[Math.min(n - 1, (int) Math.ceil(n / 2.0 + spread))];
+        this.converged = converged;
+    }
+
+    /**
+     * Summarize samples that were taken elsewhere.
+     * @param samples Durations in nanoseconds
+     */
+    public static TimingStats of(long[] samples) {
+        return new TimingStats(samples.clone(), true);
+    }
+
+    /**
+     * Time an operation with the default precision target and time cap.
+     * @param action The operation; its result is consumed so the call cannot be optimized away
+     */
+    public static TimingStats measure(Supplier<?> action) {
+        return measure(action, DEFAULT_TARGET_PRECISION, DEFAULT_MAX_TIME_NANOS);
+    }
+
+    /**
+     * Time an operation, sampling adaptively until the median is known to the target precision.
+     * @param action The operation; its result is consumed so the call cannot be optimized away
+     * @param targetPrecision Target relative half-width of the median's 95% CI
+     * @param maxTimeNanos Time cap for the sampling phase
+     */
+    public static TimingStats measure(Supplier<?> action, double targetPrecision, long maxTimeNanos) {
+        // Warm-up: a few calls, and more while they are cheap
+        long warmupStart = System.nanoTime();
+        for (int i = 0; i < MIN_WARMUP || System.nanoTime() - warmupStart < WARMUP_NANOS; i++) {
+            consume(action.get());
+        }
+
+        long[] samples = new long[64];
+        int count = 0;
+        boolean converged = false;
+        long start = System.nanoTime();
+        while (count < MAX_SAMPLES) {
+            long t0 = System.nanoTime();
+            Object result = action.get();
+            long t1 = System.nanoTime();
+            consume(result);
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = t1 - t0;
+
+            if (count >= MIN_SAMPLES && count % MIN_SAMPLES == 0) {
+                if (new TimingStats(Arrays.copyOf(samples, count), false).precision() <= targetPrecision) {
+                    converged = true;
+                    break;
+                }
+                if (t1 - start > maxTimeNanos) {
+                    break;
+                }
+            }
+        }
+        return new TimingStats(Arrays.copyOf(samples, count), converged);
+    }
+
+    private static void consume(Object result) {
+        if (result == null) {
+            sink++;
+        }
+    }
+
+    /**
+     * @return The raw samples in measurement order
+     */
+    public long[] samples() {
+        return samples.clone();
+    }
+
+    public int sampleCount() {
+        return samples.length;
+    }
+
+    /**
+     * @param p Percentile in [0, 100]
+     * @return Nearest-rank percentile in nanoseconds
+     */
+    public long percentile(double p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    public long median() {
+        return percentile(50);
+    }
+
+    public long p90() {
+        return percentile(90);
+    }
+
+    public long p99() {
+        return percentile(99);
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    /**
+     * @return Coefficient of variation (standard deviation / mean)
+     */
+    public double cv() {
+        return mean == 0 ? 0.0 : stddev / mean;
+    }
+
+    /**
+     * @return Lower end of the 95% confidence interval of the median
+     */
+    public long ciLow() {
+        return ciLow;
+    }
+
+    /**
+     * @return Upper end of the 95% confidence interval of the median
+     */
+    public long ciHigh() {
+        return ciHigh;
+    }
+
+    /**
+     * @return Half-width of the median's CI relative to the median
+     */
+    public double precision() {
+        long median = median();
+        return median == 0 ? 0.0 : (ciHigh - ciLow) / 2.0 / median;
+    }
+
+    /**
+     * @return true if sampling stopped because the precision target was reached
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * @return true if the two medians' confidence intervals overlap
+     */
+    public boolean overlaps(TimingStats other) {
+        return ciLow <= other.ciHigh && other.ciLow <= ciHigh;
+    }
+
+    /**
+     * Statistically clear winner among several operations.
+     * @param stats Timing per operation
+     * @return The operation with the lowest median if its CI overlaps no other CI, else null
+     */
+    public static <K> K clearWinner(Map<K, TimingStats> stats) {
+        K best = null;
+        for (Map.Entry<K, TimingStats> entry : stats.entrySet()) {
+            if (best == null || entry.getValue().median() < stats.get(best).median()) {
+                best = entry.getKey();
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        TimingStats bestStats = stats.get(best);
+        for (Map.Entry<K, TimingStats> entry : stats.entrySet()) {
+            if (!entry.getKey().equals(best) && bestStats.overlaps(entry.getValue())) {
+                return null;
+            }
+        }
+        return best;
+    }
+}
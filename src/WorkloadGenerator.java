@@ -0,0 +1,349 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Seeded synthetic workloads, from a few KB up to about a billion characters.
+ *
+ * A workload is described by a Spec: text length, pattern length, alphabet, background
+ * structure, planted match density and seed. generate() turns a Spec into a TestCase
+ * whose expected result comes from a reference engine (KMP, which stays linear on the
+ * adversarial inputs where Naive would not finish). The same Spec always yields the
+ * same test case. suite() lists a grid of Specs across sizes; combined with
+ * TestCaseLoader.streamGeneratedTestCases() only one generated case is held at a time.
+ *
+ * Texts are Java Strings, so n is limited to Integer.MAX_VALUE - 8 characters, and
+ * gigabyte-sized cases need a matching -Xmx (CJK text takes two bytes per character).
+ * The expected result is a comma-separated String too, so a case whose matches would
+ * not fit in one (a periodic text of a GB has hundreds of millions) cannot be
+ * generated; generate() rejects it before building the String.
+ */
+public class WorkloadGenerator {
+    public static final long DEFAULT_SEED = 42L;
+    public static final int MAX_TEXT_LENGTH = Integer.MAX_VALUE - 8;
+
+    /** Engine whose matches are the expected result (linear even on adversarial inputs) */
+    static final String REFERENCE_ENGINE = "KMP";
+
+    /** Planted occurrences per text position for the sparse and dense variants */
+    static final double SPARSE_DENSITY = 0.0001;
+    static final double DENSE_DENSITY = 0.01;
+
+    static final int SUITE_MIN_N = 1 << 10;
+    static final int SUITE_PATTERN_LENGTH = 16;
+
+    /** Chance that a character of a periodic background is replaced by a random symbol */
+    private static final double PERIODIC_NOISE = 0.01;
+
+    public enum Alphabet {
+        BINARY("01"),
+        DNA("ACGT"),
+        ASCII(range(' ', 95)),
+        CJK(range('一', 4096));
+
+        private final char[] symbols;
+
+        Alphabet(String symbols) {
+            this.symbols = symbols.toCharArray();
+        }
+
+        public int size() {
+            return symbols.length;
+        }
+
+        char symbol(int k) {
+            return symbols[k];
+        }
+
+        private static String range(char first, int count) {
+            StringBuilder sb = new StringBuilder(count);
+            for (int i = 0; i < count; i++) {
+                sb.append((char) (first + i));
+            }
+            return sb.toString();
+        }
+    }
+
+    public enum Structure {
+        /** Uniform random text and pattern; matches come from planting and chance */
+        RANDOM,
+        /** Text and pattern repeat a short root, so occurrences overlap heavily */
+        PERIODIC,
+        /** Text "aaa...a", pattern "aa...ab": every alignment fails at the last character */
+        ADVERSARIAL,
+        /** Text "aaa...a", pattern "bb...b": no alignment matches even one character (best case for Boyer-Moore) */
+        DISJOINT
+    }
+
+    /**
+     * Parameters of one generated test case.
+     */
+    public static final class Spec {
+        final int n;
+        final int m;
+        final Alphabet alphabet;
+        final Structure structure;
+        final double density;
+        final long seed;
+
+        /**
+         * @param n Text length
+         * @param m Pattern length (1..n)
+         * @param alphabet Symbols of text and pattern
+         * @param structure Shape of the background text and pattern
+         * @param density Probability per text position that an occurrence is planted there
+         * @param seed Seed for every random choice
+         */
+        public Spec(int n, int m, Alphabet alphabet, Structure structure, double density, long seed) {
+            if (n < 1 || n > MAX_TEXT_LENGTH) {
+                throw new IllegalArgumentException("Text length must be in 1.." + MAX_TEXT_LENGTH + ": " + n);
+            }
+            if (m < 1 || m > n) {
+                throw new IllegalArgumentException("Pattern length must be in 1.." + n + ": " + m);
+            }
+            if (density < 0.0 || density > 1.0) {
+                throw new IllegalArgumentException("Density must be in [0, 1]: " + density);
+            }
+            this.n = n;
+            this.m = m;
+            this.alphabet = alphabet;
+            this.structure = structure;
+            this.density = density;
+            this.seed = seed;
+        }
+
+        /**
+         * @return Test case name, e.g. "gen_dna_random_n16K_m16_d0.01_s123"
+         */
+        public String name() {
+            return String.format(Locale.ROOT, "gen_%s_%s_n%s_m%d_d%s_s%d",
+                    alphabet.name().toLowerCase(Locale.ROOT), structure.name().toLowerCase(Locale.ROOT),
+                    formatSize(n), m, BigDecimal.valueOf(density).stripTrailingZeros().toPlainString(), seed);
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+
+    /**
+     * Build the test case described by a spec.
+     * @throws IllegalArgumentException if the expected result would not fit in a String
+     */
+    public static TestCase generate(Spec spec) {
+        Random random = new Random(spec.seed);
+        char[] pattern = pattern(spec, random);
+        char[] text = background(spec, pattern, random);
+        plant(text, pattern, spec.density, random);
+
+        String textString = new String(text);
+        String patternString = new String(pattern);
+        String expected;
+        try {
+            expected = reference(textString, patternString);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(spec.name() + ": " + e.getMessage(), e);
+        }
+        return new TestCase(spec.name(), textString, patternString, expected);
+    }
+
+    /**
+     * Grid of specs over text sizes 1K, 16K, 256K, ... up to maxN. Each size gets every
+     * alphabet with sparse and dense random text, a periodic and an adversarial case.
+     * Per-case seeds are derived from the suite seed, so the whole suite is reproducible.
+     * @param seed Suite seed
+     * @param maxN Largest text length to include
+     */
+    public static List<Spec> suite(long seed, long maxN) {
+        Random seeds = new Random(seed);
+        List<Spec> specs = new ArrayList<>();
+        for (long n = SUITE_MIN_N; n <= Math.min(maxN, MAX_TEXT_LENGTH); n *= 16) {
+            for (Alphabet alphabet : Alphabet.values()) {
+                int size = (int) n;
+                int m = Math.min(SUITE_PATTERN_LENGTH, size);
+                specs.add(new Spec(size, m, alphabet, Structure.RANDOM, SPARSE_DENSITY, seeds.nextInt(1 << 30)));
+                specs.add(new Spec(size, m, alphabet, Structure.RANDOM, DENSE_DENSITY, seeds.nextInt(1 << 30)));
+                specs.add(new Spec(size, m, alphabet, Structure.PERIODIC, SPARSE_DENSITY, seeds.nextInt(1 << 30)));
+                specs.add(new Spec(size, m, alphabet, Structure.ADVERSARIAL, SPARSE_DENSITY, seeds.nextInt(1 << 30)));
+            }
+        }
+        return specs;
+    }
+
+    private static char[] pattern(Spec spec, Random random) {
+        Alphabet alphabet = spec.alphabet;
+        char[] pattern = new char[spec.m];
+        switch (spec.structure) {
+            case PERIODIC: {
+                char[] root = periodicRoot(spec, random);
+                for (int i = 0; i < pattern.length; i++) {
+                    pattern[i] = root[i % root.length];
+                }
+                break;
+            }
+            case ADVERSARIAL:
+                for (int i = 0; i < pattern.length - 1; i++) {
+                    pattern[i] = alphabet.symbol(0);
+                }
+                pattern[pattern.length - 1] = alphabet.symbol(1);
+                break;
+            case DISJOINT:
+                Arrays.fill(pattern, alphabet.symbol(1));
+                break;
+            default:
+                for (int i = 0; i < pattern.length; i++) {
+                    pattern[i] = alphabet.symbol(random.nextInt(alphabet.size()));
+                }
+                break;
+        }
+        return pattern;
+    }
+
+    /**
+     * Random root of length 1..4 for periodic cases.
+     */
+    private static char[] periodicRoot(Spec spec, Random random) {
+        char[] root = new char[Math.min(spec.m, 1 + random.nextInt(4))];
+        for (int i = 0; i < root.length; i++) {
+            root[i] = spec.alphabet.symbol(random.nextInt(spec.alphabet.size()));
+        }
+        return root;
+    }
+
+    private static char[] background(Spec spec, char[] pattern, Random random) {
+        Alphabet alphabet = spec.alphabet;
+        char[] text = new char[spec.n];
+        switch (spec.structure) {
+            case PERIODIC: {
+                // The pattern starts with the root; find its period to repeat it
+                int period = smallestPeriod(pattern);
+                for (int i = 0; i < text.length; i++) {
+                    text[i] = random.nextDouble() < PERIODIC_NOISE
+                            ? alphabet.symbol(random.nextInt(alphabet.size()))
+                            : pattern[i % period];
+                }
+                break;
+            }
+            case ADVERSARIAL:
+            case DISJOINT:
+                Arrays.fill(text, alphabet.symbol(0));
+                break;
+            default:
+                for (int i = 0; i < text.length; i++) {
+                    text[i] = alphabet.symbol(random.nextInt(alphabet.size()));
+                }
+                break;
+        }
+        return text;
+    }
+
+    /**
+     * Copy the pattern into the text at random positions, density per position on average.
+     * The gaps are geometric, so planting costs time per occurrence rather than per character.
+     */
+    private static void plant(char[] text, char[] pattern, double density, Random random) {
+        if (density <= 0.0) {
+            return;
+        }
+        double logKeep = Math.log1p(-Math.min(density, 1.0 - 1e-12));
+        long pos = 0;
+        while (true) {
+            pos += (long) (Math.log(1.0 - random.nextDouble()) / logKeep);
+            if (pos + pattern.length > text.length) {
+                return;
+            }
+            System.arraycopy(pattern, 0, text, (int) pos, pattern.length);
+            pos += pattern.length;
+        }
+    }
+
+    private static int smallestPeriod(char[] s) {
+        int[] border = new int[s.length];
+        for (int i = 1, k = 0; i < s.length; i++) {
+            while (k > 0 && s[i] != s[k]) {
+                k = border[k - 1];
+            }
+            if (s[i] == s[k]) {
+                k++;
+            }
+            border[i] = k;
+        }
+        return s.length - border[s.length - 1];
+    }
+
+    /**
+     * Expected result from the reference engine. The matches go to a MatchCollector,
+     * which spills to disk, and the String is only built once its length is known.
+     * @throws IllegalArgumentException if the result would be longer than a String can be
+     */
+    static String reference(String text, String pattern) {
+        try (MatchCollector matches = new MatchCollector()) {
+            SolutionFactory.getInstance(REFERENCE_ENGINE).solveInto(text, pattern, matches);
+            long length = 0;
+            PrimitiveIterator.OfInt it = matches.iterator();
+            while (it.hasNext()) {
+                length += digits(it.nextInt()) + 1;
+            }
+            length = Math.max(0, length - 1);
+            if (length > MAX_TEXT_LENGTH) {
+                throw new IllegalArgumentException(matches.size() + " matches need a " + length
+                        + "-char result, longer than a String can hold; use a smaller text");
+            }
+            StringBuilder sb = new StringBuilder((int) length);
+            it = matches.iterator();
+            while (it.hasNext()) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(it.nextInt());
+            }
+            return sb.toString();
+        }
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Parse a size such as "4096", "64K", "16M" or "1G" (powers of 1024).
+     */
+    public static long parseSize(String size) {
+        String s = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (s.endsWith("K")) {
+            unit = 1L << 10;
+        } else if (s.endsWith("M")) {
+            unit = 1L << 20;
+        } else if (s.endsWith("G")) {
+            unit = 1L << 30;
+        }
+        if (unit != 1) {
+            s = s.substring(0, s.length() - 1);
+        }
+        return Long.parseLong(s) * unit;
+    }
+
+    static String formatSize(long n) {
+        if (n >= 1L << 30 && n % (1L << 30) == 0) {
+            return (n >> 30) + "G";
+        }
+        if (n >= 1L << 20 && n % (1L << 20) == 0) {
+            return (n >> 20) + "M";
+        }
+        if (n >= 1L << 10 && n % (1L << 10) == 0) {
+            return (n >> 10) + "K";
+        }
+        return Long.toString(n);
+    }
+}